@@ -0,0 +1,212 @@
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Anytime Repairing A* (ARA*) over a TerrainGrid
+ * The first round is a heavily weighted search that finds a path quickly, costing at most weight x the optimum.
+ * Later rounds lower the weight by WEIGHT_STEP and repair the same search tree, keeping every cost found so far,
+ * until the path is optimal or the time budget runs out. A node that gets cheaper after it was expanded in the
+ * current round is not expanded again; it waits in the INCONS list for the next round.
+ * Not thread-safe: use one instance per thread.
+ */
+public class AnytimeSearch {
+    public static final double WEIGHT_STEP = 0.5;
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int CLOCK_MASK = 1023; // check the deadline and cancellation every 1024 expansions
+    private static final int[] EMPTY = new int[0];
+
+    private Movement movement = Movement.FOUR_WAY;
+    private int[] gCost = EMPTY;   // valid when seen[] holds the current query
+    private int[] parent = EMPTY;
+    private int[] seen = EMPTY;    // query stamp
+    private int[] closed = EMPTY;  // round stamp of the node's last expansion
+    private int[] inIncons = EMPTY; // round stamp of the node's last INCONS entry
+    private int[] incons = new int[64]; // nodes improved after their expansion this round
+    private int inconsCount;
+    private int[] work = new int[64];   // open nodes while rekeying
+    private IndexedMinHeap open = new IndexedMinHeap(0);
+    private int query, round;
+
+    private int expanded, rounds, cost = PathSearch.NO_PATH;
+    private double bound;
+
+    public void setMovement(Movement movement) {
+        this.movement = movement;
+    }
+
+    /**
+     * Path from start to goal as cell indices, empty if there is none. The first round always finishes; after that
+     * the search stops refining once budgetNanos have passed and returns the best path of a finished round
+     */
+    public int[] findPath(TerrainGrid grid, int start, int goal, double initialWeight, long budgetNanos) {
+        return findPath(grid, start, goal, initialWeight, budgetNanos, () -> false);
+    }
+
+    // Same, but gives up and returns an empty path, even during the first round, as soon as cancelled says so
+    public int[] findPath(TerrainGrid grid, int start, int goal, double initialWeight, long budgetNanos, BooleanSupplier cancelled) {
+        if (!(initialWeight >= 1)) throw new IllegalArgumentException("Weight must be at least 1: " + initialWeight);
+        PathMetrics metrics = PathMetrics.active();
+        long begin = System.nanoTime(), deadline = begin + budgetNanos;
+        begin(grid.size());
+        if (grid.isBlocked(goal)) return EMPTY;
+
+        int width = grid.width, goalX = goal % width, goalY = goal / width;
+        reach(start, 0, -1);
+        int h = movement.heuristic(Math.abs(start % width - goalX), Math.abs(start / width - goalY));
+        open.push(start, (int) (initialWeight * h), h);
+
+        int[] best = EMPTY;
+        double weight = initialWeight;
+        while (true) {
+            newRound();
+            if (!improve(grid, goal, weight, best.length == 0 ? Long.MAX_VALUE : deadline, cancelled)) break; // out of time
+            if (g(goal) == INF) break; // unreachable
+            best = path(grid, goal);
+            bound = weight;
+            rounds++;
+            if (weight <= 1 || System.nanoTime() >= deadline) break;
+
+            weight = Math.max(1, weight - WEIGHT_STEP);
+            rekey(grid, goalX, goalY, weight);
+        }
+
+        if (cancelled.getAsBoolean()) return EMPTY;
+        if (metrics != null)
+            metrics.recordQuery(System.nanoTime() - begin, expanded, open.peakSize(), best.length > 0);
+        return best;
+    }
+
+    // Suboptimality bound of the last path returned: its cost is at most bound() x the optimum (1 = optimal)
+    public double bound() {
+        return bound;
+    }
+
+    public int cost() {
+        return cost;
+    }
+
+    // Rounds that finished with a path in the last query
+    public int rounds() {
+        return rounds;
+    }
+
+    public int expanded() {
+        return expanded;
+    }
+
+    // One round of weighted A* on the current tree; false if the deadline passed or it was cancelled before it finished
+    private boolean improve(TerrainGrid grid, int goal, double weight, long deadline, BooleanSupplier cancelled) {
+        int width = grid.width, goalX = goal % width, goalY = goal / width;
+
+        while (!open.isEmpty() && g(goal) > open.peekPrimary()) {
+            if ((expanded & CLOCK_MASK) == 0 && (System.nanoTime() >= deadline || cancelled.getAsBoolean())) return false;
+            int current = open.pop();
+            closed[current] = round;
+            expanded++;
+
+            int x = current % width, y = current / width;
+            int g = gCost[current];
+            for (int k = 0; k < movement.directions; k++) {
+                int step = movement.stepCost(grid, x, y, k);
+                if (step < 0) continue;
+                int nx = x + Movement.DX[k], ny = y + Movement.DY[k];
+                int next = ny * width + nx;
+                if (g + step >= g(next)) continue;
+
+                reach(next, g + step, current);
+                if (closed[next] != round) {
+                    int h = movement.heuristic(Math.abs(nx - goalX), Math.abs(ny - goalY));
+                    open.push(next, g + step + (int) (weight * h), h);
+                } else if (inIncons[next] != round) {
+                    inIncons[next] = round;
+                    incons = ensure(incons, inconsCount);
+                    incons[inconsCount++] = next;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Moves INCONS into OPEN and recomputes every key for the new weight
+    private void rekey(TerrainGrid grid, int goalX, int goalY, double weight) {
+        int count = 0;
+        while (!open.isEmpty()) {
+            work = ensure(work, count);
+            work[count++] = open.pop();
+        }
+        for (int i = 0; i < inconsCount; i++) {
+            work = ensure(work, count);
+            work[count++] = incons[i];
+        }
+        inconsCount = 0;
+
+        int width = grid.width;
+        for (int i = 0; i < count; i++) {
+            int node = work[i];
+            int h = movement.heuristic(Math.abs(node % width - goalX), Math.abs(node / width - goalY));
+            open.push(node, gCost[node] + (int) (weight * h), h);
+        }
+    }
+
+    /**
+     * Copies out the tree path to goal and sets cost to what it really costs: a parent can get cheaper after
+     * its child's cost was recorded, so the path may be cheaper than g(goal)
+     */
+    private int[] path(TerrainGrid grid, int goal) {
+        int length = 0;
+        for (int c = goal; c != -1; c = parent[c]) length++;
+        int[] path = new int[length];
+        for (int c = goal; c != -1; c = parent[c]) path[--length] = c;
+
+        cost = 0;
+        for (int i = 1; i < path.length; i++) {
+            boolean diagonal = path[i] % grid.width != path[i - 1] % grid.width && path[i] / grid.width != path[i - 1] / grid.width;
+            cost += (diagonal ? movement.diagonal : movement.straight) * grid.cost(path[i]);
+        }
+        return path;
+    }
+
+    private int g(int node) {
+        return seen[node] == query ? gCost[node] : INF;
+    }
+
+    private void reach(int node, int g, int from) {
+        seen[node] = query;
+        gCost[node] = g;
+        parent[node] = from;
+    }
+
+    // Starts a new query, growing the scratch arrays only when a larger grid shows up
+    private void begin(int cells) {
+        if (seen.length < cells) {
+            gCost = new int[cells];
+            parent = new int[cells];
+            seen = new int[cells];
+            closed = new int[cells];
+            inIncons = new int[cells];
+            open = new IndexedMinHeap(cells);
+            query = round = 0;
+        }
+        if (++query == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            query = 1;
+        }
+        open.clear();
+        inconsCount = 0;
+        expanded = rounds = 0;
+        cost = PathSearch.NO_PATH;
+        bound = 0;
+    }
+
+    private void newRound() {
+        if (++round == Integer.MAX_VALUE) {
+            Arrays.fill(closed, 0);
+            Arrays.fill(inIncons, 0);
+            round = 1;
+        }
+    }
+
+    private static int[] ensure(int[] array, int size) {
+        return size < array.length ? array : Arrays.copyOf(array, array.length * 2);
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.function.BooleanSupplier;
+
+/**
+ * Bidirectional A* over a TerrainGrid: a forward search from start and a backward search from goal run together
+ * Both sides use the averaged ("balanced") Manhattan potential, (dist to goal - dist from start) / 2, so their
+ * keys are comparable, and the search can stop as soon as topForward + topBackward >= the best meeting cost
+ * found so far. That stop is exact for any positive terrain costs, not just uniform ones.
+ * Keys and costs are kept doubled internally so the halved potential stays an integer.
+ * Not thread-safe: use one instance per thread.
+ */
+public class BidirectionalSearch {
+    private static final long INF = Long.MAX_VALUE / 4;
+    private static final int[] EMPTY = new int[0];
+    private static final int CLOCK_MASK = 1023; // check for cancellation every 1024 expansions
+
+    private final PathSearch forward = new PathSearch();
+    private final PathSearch backward = new PathSearch();
+    private int forwardExpanded, backwardExpanded;
+
+    // Returns the path from start to goal as cell indices, empty if no path found
+    public int[] findPath(TerrainGrid grid, int start, int goal) {
+        return findPath(grid, start, goal, () -> false);
+    }
+
+    // Same, but gives up and returns an empty path once cancelled says so (checked every 1024 expansions)
+    public int[] findPath(TerrainGrid grid, int start, int goal, BooleanSupplier cancelled) {
+        PathMetrics metrics = PathMetrics.active();
+        if (metrics == null) return search(grid, start, goal, cancelled);
+
+        long begin = System.nanoTime();
+        int[] path = search(grid, start, goal, cancelled);
+        if (!cancelled.getAsBoolean()) metrics.recordQuery(System.nanoTime() - begin, expanded(), forward.peakOpen() + backward.peakOpen(), path.length > 0);
+        return path;
+    }
+
+    private int[] search(TerrainGrid grid, int start, int goal, BooleanSupplier cancelled) {
+        forward.begin(grid.size());
+        backward.begin(grid.size());
+        forwardExpanded = backwardExpanded = 0;
+
+        if (start == goal) return new int[] {start};
+        if (grid.isBlocked(goal)) return EMPTY;
+
+        int width = grid.width;
+        long best = INF; // best start -> goal cost seen through a cell labelled by both sides
+        int meet = -1;
+
+        forward.offer(start, 0, -1, potential(grid, start, start, goal));
+        backward.offer(goal, 0, -1, -potential(grid, goal, start, goal));
+
+        // Once either side runs dry, every meeting it could make has already been recorded
+        while (forward.openSize() > 0 && backward.openSize() > 0) {
+            long topForward = forward.topKey(), topBackward = backward.topKey();
+            if (topForward + topBackward >= 2 * best) break;
+            if (((forward.expanded() + backward.expanded()) & CLOCK_MASK) == 0 && cancelled.getAsBoolean()) return EMPTY;
+
+            if (topForward <= topBackward) {
+                // Expand forward: stepping onto w costs w's terrain
+                int v = forward.poll();
+                int g = forward.gCost(v) / 2;
+                int x = v % width, y = v / width;
+                for (int d = 0; d < 4; d++) {
+                    int w = neighbor(grid, v, x, y, d);
+                    if (w < 0 || grid.isBlocked(w)) continue;
+
+                    int gw = g + grid.cost(w);
+                    forward.offer(w, 2 * gw, v, potential(grid, w, start, goal));
+                    if (backward.reached(w) && gw + backward.gCost(w) / 2 < best) {
+                        best = gw + backward.gCost(w) / 2;
+                        meet = w;
+                    }
+                }
+            } else {
+                // Expand backward: reaching u from v means stepping onto u, which costs u's terrain
+                int u = backward.poll();
+                int g = backward.gCost(u) / 2 + grid.cost(u);
+                int x = u % width, y = u / width;
+                for (int d = 0; d < 4; d++) {
+                    int v = neighbor(grid, u, x, y, d);
+                    if (v < 0 || (v != start && grid.isBlocked(v))) continue;
+
+                    backward.offer(v, 2 * g, u, -potential(grid, v, start, goal));
+                    if (forward.reached(v) && forward.gCost(v) / 2 + g < best) {
+                        best = forward.gCost(v) / 2 + g;
+                        meet = v;
+                    }
+                }
+            }
+        }
+
+        forwardExpanded = forward.expanded();
+        backwardExpanded = backward.expanded();
+        if (meet < 0) return EMPTY;
+
+        // start -> meet from the forward parents, then meet -> goal from the backward parents
+        int head = 0;
+        for (int c = meet; c != -1; c = forward.parent(c)) head++;
+        int tail = 0;
+        for (int c = backward.parent(meet); c != -1; c = backward.parent(c)) tail++;
+
+        int[] path = new int[head + tail];
+        int i = head;
+        for (int c = meet; c != -1; c = forward.parent(c)) path[--i] = c;
+        i = head;
+        for (int c = backward.parent(meet); c != -1; c = backward.parent(c)) path[i++] = c;
+        return path;
+    }
+
+    // Nodes expanded by the last query, both directions combined
+    public int expanded() {
+        return forwardExpanded + backwardExpanded;
+    }
+
+    public int forwardExpanded() {
+        return forwardExpanded;
+    }
+
+    public int backwardExpanded() {
+        return backwardExpanded;
+    }
+
+    // Doubled balanced potential: Manhattan to goal minus Manhattan from start
+    private static int potential(TerrainGrid grid, int cell, int start, int goal) {
+        int w = grid.width, x = cell % w, y = cell / w;
+        int toGoal = Math.abs(x - goal % w) + Math.abs(y - goal / w);
+        int fromStart = Math.abs(x - start % w) + Math.abs(y - start / w);
+        return toGoal - fromStart;
+    }
+
+    // Neighbor in direction d (left, right, up, down), or -1 off the grid
+    private static int neighbor(TerrainGrid grid, int cell, int x, int y, int d) {
+        switch (d) {
+            case 0: return x > 0 ? cell - 1 : -1;
+            case 1: return x < grid.width - 1 ? cell + 1 : -1;
+            case 2: return y > 0 ? cell - grid.width : -1;
+            default: return y < grid.height - 1 ? cell + grid.width : -1;
+        }
+    }
+}
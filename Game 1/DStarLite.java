@@ -0,0 +1,227 @@
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Incremental replanner (D* Lite) over a TerrainGrid
+ * Searches backward from the goal and keeps its search tree (g / rhs values and the open list) between queries.
+ * Terrain edits only re-open the cells next to the edited one, so the next query repairs the affected region
+ * instead of searching from scratch. Moving the start is handled with the usual key modifier (km); a new goal
+ * starts a fresh tree. Not thread-safe: use one instance per thread, or one shared instance from the GUI thread.
+ */
+public class DStarLite implements TerrainListener {
+    private static final int INF = Integer.MAX_VALUE / 2;
+    private static final int[] EMPTY = new int[0];
+    private static final int CLOCK_MASK = 1023; // check for cancellation every 1024 expansions
+
+    private final TerrainGrid grid;
+    private final int[] g;    // cost-to-goal estimate
+    private final int[] rhs;  // one-step lookahead of g
+    private final IndexedMinHeap open;
+
+    private int start = -1, goal = -1;
+    private int lastStart;    // start the queued keys were computed for (adjusted through km)
+    private int km;
+    private int expanded;
+
+    public DStarLite(TerrainGrid grid) {
+        this.grid = grid;
+        this.g = new int[grid.size()];
+        this.rhs = new int[grid.size()];
+        this.open = new IndexedMinHeap(grid.size());
+        grid.addListener(this);
+    }
+
+    // Returns the path from start to goal as cell indices, empty if no path found
+    public int[] findPath(int start, int goal) {
+        return findPath(start, goal, () -> false);
+    }
+
+    /**
+     * Same, but gives up and returns an empty path once cancelled says so (checked every 1024 expansions).
+     * The tree is left consistent, so the next query picks up the repair where this one stopped
+     */
+    public int[] findPath(int start, int goal, BooleanSupplier cancelled) {
+        PathMetrics metrics = PathMetrics.active();
+        if (metrics == null) return search(start, goal, cancelled);
+
+        long begin = System.nanoTime();
+        int[] path = search(start, goal, cancelled);
+        if (!cancelled.getAsBoolean()) metrics.recordQuery(System.nanoTime() - begin, expanded, open.peakSize(), path.length > 0);
+        return path;
+    }
+
+    private int[] search(int start, int goal, BooleanSupplier cancelled) {
+        expanded = 0;
+        if (goal != this.goal) {
+            this.goal = goal;
+            this.start = start;
+            initialize();
+        } else if (start != this.start) {
+            this.start = start;
+            km += heuristic(lastStart, start);
+            lastStart = start;
+        }
+
+        if (!computeShortestPath(cancelled)) return EMPTY;
+        return extractPath();
+    }
+
+    // Nodes expanded by the last findPath call
+    public int expanded() {
+        return expanded;
+    }
+
+    // Every edge into the edited cell changed cost; only its neighbors' lookahead values can be affected
+    @Override
+    public void terrainChanged(int cell, TerrainType oldType, TerrainType newType) {
+        if (goal < 0) return; // nothing planned yet
+
+        int oldCost = oldType == TerrainType.OBSTACLE ? INF : oldType.cost;
+        int newCost = newType == TerrainType.OBSTACLE ? INF : newType.cost;
+        int x = cell % grid.width, y = cell / grid.width;
+
+        if (x > 0) edgeChanged(cell - 1, cell, oldCost, newCost);
+        if (x < grid.width - 1) edgeChanged(cell + 1, cell, oldCost, newCost);
+        if (y > 0) edgeChanged(cell - grid.width, cell, oldCost, newCost);
+        if (y < grid.height - 1) edgeChanged(cell + grid.width, cell, oldCost, newCost);
+    }
+
+    private void edgeChanged(int from, int to, int oldCost, int newCost) {
+        if (from == goal) return;
+
+        if (newCost < oldCost) {
+            rhs[from] = Math.min(rhs[from], add(newCost, g[to]));
+        } else if (rhs[from] == add(oldCost, g[to])) {
+            rhs[from] = bestSuccessor(from);
+        }
+        updateVertex(from);
+    }
+
+    private void initialize() {
+        Arrays.fill(g, INF);
+        Arrays.fill(rhs, INF);
+        open.clear();
+        km = 0;
+        lastStart = start;
+        rhs[goal] = 0;
+        open.push(goal, heuristic(start, goal), 0);
+    }
+
+    // false if cancelled before the start was settled
+    private boolean computeShortestPath(BooleanSupplier cancelled) {
+        while (!open.isEmpty()) {
+            int u = open.peek();
+            int oldK1 = open.peekPrimary(), oldK2 = open.peekSecondary();
+
+            int startK2 = Math.min(g[start], rhs[start]);
+            int startK1 = add(startK2, km);
+            boolean startSettled = oldK1 > startK1 || (oldK1 == startK1 && oldK2 >= startK2);
+            if (startSettled && rhs[start] <= g[start]) break;
+
+            int newK2 = Math.min(g[u], rhs[u]);
+            int newK1 = add(newK2, heuristic(start, u) + km);
+            if (oldK1 < newK1 || (oldK1 == newK1 && oldK2 < newK2)) {
+                open.push(u, newK1, newK2); // key went stale after km grew
+                continue;
+            }
+
+            if ((expanded & CLOCK_MASK) == CLOCK_MASK && cancelled.getAsBoolean()) return false;
+            open.pop();
+            expanded++;
+            if (g[u] > rhs[u]) {
+                // Overconsistent: settle it and let its predecessors improve through it
+                g[u] = rhs[u];
+                relaxPredecessors(u);
+            } else {
+                // Underconsistent: its old value can no longer be trusted, recompute everything that relied on it
+                int lost = add(cost(u), g[u]);
+                g[u] = INF;
+                int x = u % grid.width, y = u / grid.width;
+                if (x > 0) dropPredecessor(u - 1, lost);
+                if (x < grid.width - 1) dropPredecessor(u + 1, lost);
+                if (y > 0) dropPredecessor(u - grid.width, lost);
+                if (y < grid.height - 1) dropPredecessor(u + grid.width, lost);
+                updateVertex(u);
+            }
+        }
+        return true;
+    }
+
+    private void relaxPredecessors(int u) {
+        int through = add(cost(u), g[u]);
+        int x = u % grid.width, y = u / grid.width;
+        if (x > 0) relaxPredecessor(u - 1, through);
+        if (x < grid.width - 1) relaxPredecessor(u + 1, through);
+        if (y > 0) relaxPredecessor(u - grid.width, through);
+        if (y < grid.height - 1) relaxPredecessor(u + grid.width, through);
+    }
+
+    private void relaxPredecessor(int s, int through) {
+        if (s != goal && through < rhs[s]) rhs[s] = through;
+        updateVertex(s);
+    }
+
+    // s may have been relying on the route it just lost (cost through u with u's old g)
+    private void dropPredecessor(int s, int lost) {
+        if (s != goal && rhs[s] == lost) rhs[s] = bestSuccessor(s);
+        updateVertex(s);
+    }
+
+    private void updateVertex(int u) {
+        if (g[u] != rhs[u]) {
+            int k2 = Math.min(g[u], rhs[u]);
+            open.push(u, add(k2, heuristic(start, u) + km), k2);
+        } else {
+            open.remove(u);
+        }
+    }
+
+    // min over neighbors v of c(u, v) + g(v)
+    private int bestSuccessor(int u) {
+        int best = INF;
+        int x = u % grid.width, y = u / grid.width;
+        if (x > 0) best = Math.min(best, add(cost(u - 1), g[u - 1]));
+        if (x < grid.width - 1) best = Math.min(best, add(cost(u + 1), g[u + 1]));
+        if (y > 0) best = Math.min(best, add(cost(u - grid.width), g[u - grid.width]));
+        if (y < grid.height - 1) best = Math.min(best, add(cost(u + grid.width), g[u + grid.width]));
+        return best;
+    }
+
+    // Walks from start, always stepping to the neighbor with the lowest c + g
+    private int[] extractPath() {
+        if (rhs[start] >= INF && start != goal) return EMPTY;
+
+        int[] path = new int[64];
+        int length = 0;
+        path[length++] = start;
+
+        for (int u = start; u != goal; ) {
+            int next = -1, best = INF;
+            int x = u % grid.width, y = u / grid.width;
+            if (x > 0 && add(cost(u - 1), g[u - 1]) < best) { next = u - 1; best = add(cost(next), g[next]); }
+            if (x < grid.width - 1 && add(cost(u + 1), g[u + 1]) < best) { next = u + 1; best = add(cost(next), g[next]); }
+            if (y > 0 && add(cost(u - grid.width), g[u - grid.width]) < best) { next = u - grid.width; best = add(cost(next), g[next]); }
+            if (y < grid.height - 1 && add(cost(u + grid.width), g[u + grid.width]) < best) { next = u + grid.width; best = add(cost(next), g[next]); }
+            if (next < 0 || length == grid.size()) return EMPTY;
+
+            if (length == path.length) path = Arrays.copyOf(path, length * 2);
+            path[length++] = next;
+            u = next;
+        }
+
+        return Arrays.copyOf(path, length);
+    }
+
+    // Cost of stepping onto the cell, INF for obstacles
+    private int cost(int cell) {
+        return grid.isBlocked(cell) ? INF : grid.cost(cell);
+    }
+
+    private int heuristic(int a, int b) {
+        return Math.abs(a % grid.width - b % grid.width) + Math.abs(a / grid.width - b / grid.width);
+    }
+
+    private static int add(int a, int b) {
+        return a >= INF || b >= INF ? INF : a + b;
+    }
+}
@@ -1,225 +1,301 @@
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.IntSupplier;
 import javax.swing.Timer;
-import java.util.List;
 
 /**
  * Main GUI class for the A* pathfinding ant game
  * Allows users to place terrain, set start/goal points, and visualize A* pathfinding
+ * The map is drawn by a GridCanvas, so it can be zoomed, panned and painted by dragging at any size
  */
 
 public class Game1GUI extends JFrame {
-    private static final int CELL_SIZE = 40; // Size of each button in pixels
-    private static final int GRID_SIZE = 16; // 16x16 grid
+    private static final int CELL_SIZE = 40; // Size of each cell in pixels at the initial zoom
+    private static final int GRID_SIZE = 16; // Default 16x16 grid, pass a size or a map file on the command line for others
+    private static final int VIEW_SIZE = 800; // Largest initial canvas size in pixels; bigger maps start zoomed out
+    private static final int CLUSTERS_ACROSS = 128; // HPA* aims for about this many clusters along the longer side...
+    private static final int MIN_CLUSTER = 4, MAX_CLUSTER = 32; // ...with clusters this many cells wide
+    private static final int CACHE_SIZE = 256; // Most recent A* results kept around
+    private static final int PATH_FRAMES = 100; // Long paths reveal several cells per animation frame
+    private static final double WEIGHT = 2; // Weighted A*: paths cost at most this many times the optimum
+    private static final double ANYTIME_WEIGHT = 3; // ARA* starts this greedy...
+    private static final long ANYTIME_BUDGET = 100_000_000; // ...and refines its path for up to this many ns
+
+    private final TerrainGrid terrain; // The terrain, read directly by every pathfinder
+    private final HierarchicalPathfinder hierarchical; // Follows terrain edits itself
+    private final DStarLite incremental; // Keeps its search tree between runs, repairs it on edits
+    private final PathCache cache; // Re-running unchanged start/goal/terrain is free
+    private final BidirectionalSearch bidirectional = new BidirectionalSearch();
+    private int startCell = -1, goalCell = -1; // Track user-defined start and goal (cell indices)
+    private GridCanvas canvas; // The visual grid
+    private JComboBox<String> brushBox; // What clicking / dragging on the grid places
+    private JComboBox<String> modeBox; // Which pathfinder Run A* uses
+    private JComboBox<String> movesBox; // 4 or 8 directions for A*, Weighted A* and ARA*
+    private JLabel statusLabel; // Search effort of the last run, for comparing modes
+    private Timer pathTimer; // Path animation in progress, if any
+    private final SearchWorker worker = new SearchWorker(); // Every search runs off the EDT; A* draws its frontier as it goes
+
+
+    // builds window around the given grid and sets up controls
+    public Game1GUI(TerrainGrid terrain) {
+        this.terrain = terrain;
+        this.hierarchical = new HierarchicalPathfinder(terrain, clusterSize(terrain));
+        this.incremental = new DStarLite(terrain);
+        this.cache = new PathCache(terrain, CACHE_SIZE);
 
-    private Cell[][] grid = new Cell[GRID_SIZE][GRID_SIZE]; // The terrain grid
-    private Cell startCell, goalCell; // Track user-defined start and goal
-    private JPanel gridPanel; // The visual grid container
-
-
-    // builds window, initializes grid, and sets up controls
-    public Game1GUI() {
         setTitle("A* Pathfinding - Ant Search");
-        setSize(GRID_SIZE * CELL_SIZE + 200, GRID_SIZE * CELL_SIZE + 50);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
 
-        initializeGrid();
         addGridPanel();
         addControlPanel();
+        pack();
     }
 
-    // Initialize the logical grid with default terrain
-    private void initializeGrid() {
-        for (int x = 0; x < GRID_SIZE; x++) {
-            for (int y = 0; y < GRID_SIZE; y++) {
-                grid[x][y] = new Cell(x, y, TerrainType.OPEN);
-            }
-        }
+    /**
+     * HPA* cluster side for this map, a power of two: small maps keep 4-cell clusters, a 2048x2048 map gets 16.
+     * Larger clusters shrink the abstract graph, but rebuilding one (a flood per entrance) costs more
+     */
+    private static int clusterSize(TerrainGrid terrain) {
+        int side = Math.max(terrain.width, terrain.height);
+        return Math.max(MIN_CLUSTER, Math.min(MAX_CLUSTER, Integer.highestOneBit(side / CLUSTERS_ACROSS)));
     }
 
-
-    // Creates the interactive grid of buttons and assigns click behavior so the user can set start, goal, and terrain type
+    // Creates the grid canvas; clicking or dragging applies the selected brush to each cell passed over
     private void addGridPanel() {
-        gridPanel = new JPanel(new GridLayout(GRID_SIZE, GRID_SIZE));
-
-        for (int y = 0; y < GRID_SIZE; y++) {
-            for (int x = 0; x < GRID_SIZE; x++) {
-                JButton btn = new JButton();
-                Cell cell = grid[x][y];
-                btn.setBackground(getTerrainColor(cell.type));
-                btn.setOpaque(true);
-                btn.setBorder(BorderFactory.createLineBorder(Color.BLACK));
-
-                // When clicked, prompt the user to assign a type to this cell
-                btn.addActionListener(e -> {
-                    String[] options = {"Start", "Goal", "Open", "Grass", "Swamp", "Obstacle"};
-                    String choice = (String) JOptionPane.showInputDialog(
-                            this, "Select Cell Type:", "Cell Config",
-                            JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
-
-                    if (choice == null) return; // User cancelled. Fixes the crash
-
-                    switch (choice) {
-                        case "Start" -> {
-                            if (startCell != null) updateCellColor(startCell.x, startCell.y);
-                            startCell = cell;
-                            btn.setBackground(Color.BLUE);
-                        }
-                        case "Goal" -> {
-                            if (goalCell != null) updateCellColor(goalCell.x, goalCell.y);
-                            goalCell = cell;
-                            btn.setBackground(Color.RED);
-                        }
-                        case "Open" -> setCellType(cell, btn, TerrainType.OPEN);
-                        case "Grass" -> setCellType(cell, btn, TerrainType.GRASSLAND);
-                        case "Swamp" -> setCellType(cell, btn, TerrainType.SWAMPLAND);
-                        case "Obstacle" -> setCellType(cell, btn, TerrainType.OBSTACLE);
-                    }
-                });
-
-                gridPanel.add(btn);
-            }
-        }
-
-        add(gridPanel, BorderLayout.CENTER);
+        canvas = new GridCanvas(terrain, Math.min(CELL_SIZE, VIEW_SIZE / (double) Math.max(terrain.width, terrain.height)), this::paintCell);
+        add(canvas, BorderLayout.CENTER);
     }
 
-    // Updates a single cell's color based on its current terrain type
-    private void updateCellColor(int x, int y) {
-        JButton btn = (JButton) gridPanel.getComponent(y * GRID_SIZE + x);
-        btn.setBackground(getTerrainColor(grid[x][y].type));
+    // Applies the selected brush to one cell
+    private void paintCell(int cell) {
+        switch ((String) brushBox.getSelectedItem()) {
+            case "Start" -> startCell = cell;
+            case "Goal" -> goalCell = cell;
+            case "Open" -> applyTerrain(cell, TerrainType.OPEN);
+            case "Grass" -> applyTerrain(cell, TerrainType.GRASSLAND);
+            case "Swamp" -> applyTerrain(cell, TerrainType.SWAMPLAND);
+            case "Obstacle" -> applyTerrain(cell, TerrainType.OBSTACLE);
+        }
+        canvas.setMarkers(startCell, goalCell);
     }
 
-    // Sets the terrain type of a cell and updates its appearance
-    private void setCellType(Cell cell, JButton btn, TerrainType type) {
-        cell.type = type;
-        cell.isObstacle = (type == TerrainType.OBSTACLE);
-        btn.setBackground(getTerrainColor(type));
+    // Single place terrain changes go through; the canvas and pathfinders follow through the grid's listeners
+    private void applyTerrain(int cell, TerrainType type) {
+        if (terrain.get(cell) == type) return;
+        stopPath();
+        terrain.set(cell % terrain.width, cell / terrain.width, type);
     }
 
-    // Adds the control buttons at the bottom: Run A*, Reset, and Randomize
+    // Adds the control buttons at the bottom: brush, Run A*, Reset, Randomize, Load, Save, and the pathfinder mode
     private void addControlPanel() {
         JPanel controlPanel = new JPanel();
 
+        brushBox = new JComboBox<>(new String[] {"Start", "Goal", "Open", "Grass", "Swamp", "Obstacle"});
         JButton runButton = new JButton("Run A*");
         JButton resetButton = new JButton("Reset");
         JButton randomizeButton = new JButton("Randomize");
+        JButton loadButton = new JButton("Load");
+        JButton saveButton = new JButton("Save");
+        modeBox = new JComboBox<>(new String[] {"A*", "Weighted A*", "ARA*", "HPA*", "D* Lite", "Bidirectional"});
+        movesBox = new JComboBox<>(new String[] {"4-way", "8-way", "8-way, cut corners"});
+        movesBox.setToolTipText("Diagonal moves for A*, Weighted A* and ARA*; the other pathfinders always move 4-way");
 
         runButton.addActionListener(e -> runPathfinding());
         resetButton.addActionListener(e -> resetGrid());
         randomizeButton.addActionListener(e -> randomizeTerrain());
+        loadButton.addActionListener(e -> loadMap());
+        saveButton.addActionListener(e -> saveMap());
 
+        controlPanel.add(new JLabel("Brush:"));
+        controlPanel.add(brushBox);
         controlPanel.add(runButton);
         controlPanel.add(resetButton);
         controlPanel.add(randomizeButton);
+        controlPanel.add(loadButton);
+        controlPanel.add(saveButton);
+        controlPanel.add(modeBox);
+        controlPanel.add(movesBox);
+        statusLabel = new JLabel(" ");
+        controlPanel.add(statusLabel);
 
         add(controlPanel, BorderLayout.SOUTH);
     }
 
     // Triggers A* pathfinding algorithm and visually animates the result path (if found)
     private void runPathfinding() {
-        if (startCell == null || goalCell == null) {
+        if (startCell < 0 || goalCell < 0) {
             JOptionPane.showMessageDialog(this, "Please set both Start and Goal cells.");
             return;
         }
 
-        List<Cell> path = AStar.findPath(grid, startCell, goalCell);
+        stopPath();
+        int start = startCell;
+        int goal = goalCell;
+        Movement movement = switch (movesBox.getSelectedIndex()) {
+            case 1 -> Movement.EIGHT_WAY;
+            case 2 -> Movement.EIGHT_WAY_CUT_CORNERS;
+            default -> Movement.FOUR_WAY;
+        };
+        switch ((String) modeBox.getSelectedItem()) {
+            case "A*" -> {
+                int[] path = movement == Movement.FOUR_WAY ? cache.lookup(start, goal) : null; // the cache holds 4-way paths
+                if (path != null) showResult(path, 0);
+                else searchInBackground(start, goal, movement, 1, 0);
+            }
+            case "Weighted A*" -> searchInBackground(start, goal, movement, WEIGHT, 0);
+            case "ARA*" -> searchInBackground(start, goal, movement, ANYTIME_WEIGHT, ANYTIME_BUDGET);
+            case "HPA*" -> queryInBackground(cancelled -> hierarchical.findPath(start, goal, cancelled), hierarchical::expanded);
+            case "D* Lite" -> queryInBackground(cancelled -> incremental.findPath(start, goal, cancelled), incremental::expanded);
+            case "Bidirectional" -> queryInBackground(cancelled -> bidirectional.findPath(terrain, start, goal, cancelled), bidirectional::expanded);
+            default -> throw new IllegalStateException("Unknown pathfinder " + modeBox.getSelectedItem());
+        }
+    }
+
+    /**
+     * Runs A* (budget 0) or ARA* (weight is the starting weight) on the worker; the A* frontier and closed set are
+     * painted as they grow, the path animated at the end
+     */
+    private void searchInBackground(int start, int goal, Movement movement, double weight, long budget) {
+        int version = terrain.version();
+        statusLabel.setText("Searching...");
+        SearchWorker.Listener listener = new SearchWorker.Listener() {
+            @Override
+            public void progress(int[] opened, int[] closed, int expanded) {
+                canvas.showSearch(opened, closed);
+                statusLabel.setText("Searching... expanded: " + expanded);
+            }
+
+            @Override
+            public void finished(int[] path, int cost, int expanded, double bound) {
+                if (movement == Movement.FOUR_WAY && weight == 1 && budget == 0) cache.put(start, goal, cost, path, version);
+                showResult(path, expanded);
+                if (budget > 0 && path.length > 0)
+                    statusLabel.setText(String.format("Expanded: %d, cost %d, within %.1fx of optimal", expanded, cost, bound));
+            }
+        };
+        if (budget > 0) worker.startAnytime(terrain, start, goal, movement, weight, budget, listener);
+        else worker.start(terrain, start, goal, movement, weight, listener);
+    }
+
+    // Runs HPA*, D* Lite or bidirectional A* on the worker (HPA* rebuilds its dirty clusters there too); the path is animated at the end
+    private void queryInBackground(SearchWorker.Query query, IntSupplier expanded) {
+        statusLabel.setText("Searching...");
+        worker.start(terrain, query, expanded, new SearchWorker.Listener() {
+            @Override
+            public void progress(int[] opened, int[] closed, int expanded) {
+            }
+
+            @Override
+            public void finished(int[] path, int cost, int expanded, double bound) {
+                showResult(path, expanded);
+            }
+        });
+    }
+
+    // Reports the search effort and animates the path, or says there is none
+    private void showResult(int[] path, int expanded) {
+        statusLabel.setText("Expanded: " + expanded);
 
-        if (path.isEmpty()) {
+        if (path.length == 0) {
             JOptionPane.showMessageDialog(this, "No path found.");
             return;
         }
 
-        // Animate the path step-by-step using a Swing Timer
-        Timer timer = new Timer(100, null);
+        // Animate the path step-by-step using a Swing Timer, drawn as an overlay by the canvas
+        canvas.setPath(path);
+        int step = Math.max(1, path.length / PATH_FRAMES);
+        pathTimer = new Timer(100, null);
         final int[] index = {0};
 
-        timer.addActionListener(e -> {
-            if (index[0] < path.size()) {
-                Cell c = path.get(index[0]);
-                if (c != startCell && c != goalCell) {
-                    JButton btn = (JButton) gridPanel.getComponent(c.y * GRID_SIZE + c.x);
-                    btn.setBackground(Color.YELLOW);
-                }
-                index[0]++;
+        pathTimer.addActionListener(e -> {
+            if (index[0] < path.length) {
+                index[0] = Math.min(path.length, index[0] + step);
+                canvas.showPath(index[0]);
             } else {
                 ((Timer) e.getSource()).stop();
             }
         });
 
-        timer.start();
+        pathTimer.start();
+    }
+
+    // Cancels a search still running, stops the path animation and removes the overlays; both are stale once the terrain changes
+    private void stopPath() {
+        worker.cancel();
+        canvas.clearSearch();
+        if (pathTimer != null) pathTimer.stop();
+        pathTimer = null;
+        canvas.clearPath();
     }
 
     // Resets all terrain back to OPEN while preserving the start and goal markers
     private void resetGrid() {
-        for (int y = 0; y < GRID_SIZE; y++) {
-            for (int x = 0; x < GRID_SIZE; x++) {
-                Cell cell = grid[x][y];
-                JButton btn = (JButton) gridPanel.getComponent(y * GRID_SIZE + x);
-
-                if (cell == startCell) {
-                    cell.type = TerrainType.OPEN;
-                    cell.isObstacle = false;
-                    btn.setBackground(Color.BLUE);
-                    continue;
-                }
-
-                if (cell == goalCell) {
-                    cell.type = TerrainType.OPEN;
-                    cell.isObstacle = false;
-                    btn.setBackground(Color.RED);
-                    continue;
-                }
-
-                cell.type = TerrainType.OPEN;
-                cell.isObstacle = false;
-                btn.setBackground(getTerrainColor(TerrainType.OPEN));
-            }
-        }
+        for (int cell = 0; cell < terrain.size(); cell++)
+            applyTerrain(cell, TerrainType.OPEN);
+        stopPath();
     }
 
     // Randomly assigns terrain types to all grid cells, but keeps the Start and Goal positions untouched
     private void randomizeTerrain() {
         Random rand = new Random();
 
-        for (int x = 0; x < GRID_SIZE; x++) {
-            for (int y = 0; y < GRID_SIZE; y++) {
-                if ((startCell != null && startCell.x == x && startCell.y == y) ||
-                    (goalCell != null && goalCell.x == x && goalCell.y == y)) {
-                    continue; // Preserve start/goal
-                }
-
-                int roll = rand.nextInt(100);
-                TerrainType type;
-
-                if (roll < 50) type = TerrainType.OPEN;
-                else if (roll < 70) type = TerrainType.GRASSLAND;
-                else if (roll < 90) type = TerrainType.SWAMPLAND;
-                else type = TerrainType.OBSTACLE;
-
-                Cell cell = grid[x][y];
-                cell.type = type;
-                cell.isObstacle = (type == TerrainType.OBSTACLE);
-                JButton btn = (JButton) gridPanel.getComponent(y * GRID_SIZE + x);
-                btn.setBackground(getTerrainColor(type));
-            }
+        for (int cell = 0; cell < terrain.size(); cell++) {
+            if (cell == startCell || cell == goalCell) continue; // Preserve start/goal
+
+            int roll = rand.nextInt(100);
+            TerrainType type;
+
+            if (roll < 50) type = TerrainType.OPEN;
+            else if (roll < 70) type = TerrainType.GRASSLAND;
+            else if (roll < 90) type = TerrainType.SWAMPLAND;
+            else type = TerrainType.OBSTACLE;
+
+            applyTerrain(cell, type);
         }
+        stopPath();
     }
 
-    // Returns a color that visually represents each terrain type
-    private Color getTerrainColor(TerrainType type) {
-        return switch (type) {
-            case OPEN -> Color.LIGHT_GRAY;
-            case GRASSLAND -> new Color(102, 204, 0);     // Greenish
-            case SWAMPLAND -> new Color(153, 102, 0);     // Brownish
-            case OBSTACLE -> Color.DARK_GRAY;
-        };
+    // Opens a terrain map file in a new window (the pathfinders are built for one grid) and closes this one
+    private void loadMap() {
+        JFileChooser chooser = new JFileChooser(".");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        try {
+            TerrainGrid loaded = TerrainMap.load(chooser.getSelectedFile().toPath());
+            stopPath();
+            new Game1GUI(loaded).setVisible(true);
+            dispose();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not load map: " + e.getMessage());
+        }
+    }
+
+    // Saves the terrain as a run-length encoded map file
+    private void saveMap() {
+        JFileChooser chooser = new JFileChooser(".");
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        try {
+            TerrainMap.save(terrain, chooser.getSelectedFile().toPath(), TerrainMap.RUNS);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not save map: " + e.getMessage());
+        }
     }
 
-    // Launches the game
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new Game1GUI().setVisible(true));
+    // Launches the game; optional argument: map size in cells (e.g. 2048) or a terrain map file to open
+    // Run with -Dmetrics=true to publish pathfinding metrics over JMX and print them every 5 seconds
+    public static void main(String[] args) throws IOException {
+        if (Boolean.getBoolean("metrics")) PathMetrics.enable().startDump(System.out, 5000, false);
+
+        TerrainGrid terrain;
+        if (args.length == 0) terrain = new TerrainGrid(GRID_SIZE, GRID_SIZE); // all OPEN
+        else if (args[0].matches("\\d+")) terrain = new TerrainGrid(Integer.parseInt(args[0]), Integer.parseInt(args[0]));
+        else terrain = TerrainMap.load(Paths.get(args[0]));
+
+        SwingUtilities.invokeLater(() -> new Game1GUI(terrain).setVisible(true));
     }
 }
\ No newline at end of file
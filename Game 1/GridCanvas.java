@@ -0,0 +1,288 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Zoomable, pannable view of a TerrainGrid for the A* editor
+ * The terrain is kept in an image with one pixel per cell, patched by the grid's change events and scaled
+ * onto the screen, so a frame only touches the visible part of the map no matter how large it is.
+ * The start/goal markers and the path are drawn as overlays on top. A search in progress is shown by tinting the
+ * terrain pixels of the cells it has opened and closed, restored from the grid when the search is cleared.
+ * Left button paints (every cell crossed by a drag is reported), right or middle drag pans, the wheel zooms.
+ */
+public class GridCanvas extends JComponent implements TerrainListener {
+    private static final int[] TERRAIN_RGB = { 0xC0C0C0, 0x66CC00, 0x996600, 0x404040 }; // by TerrainType ordinal
+    private static final int OPEN_TINT = 0xFFE066;   // frontier of a running search
+    private static final int CLOSED_TINT = 0x5C8AE6; // cells it has finished with
+    private static final double MAX_SCALE = 64;
+    private static final int GRID_LINE_SCALE = 8; // grid lines drawn once cells are at least this many pixels wide
+
+    private final TerrainGrid grid;
+    private final IntConsumer onPaint; // receives each cell the user paints over
+    private final BufferedImage image;
+    private final int[] pixels;
+
+    private double scale;              // pixels per cell
+    private double originX, originY;   // screen position of the top-left corner of cell (0, 0)
+    private int start = -1, goal = -1;
+    private int[] path = new int[0];
+    private int pathShown;             // leading path cells currently drawn
+    private int[] tinted = new int[0]; // cells whose pixels carry a search tint
+    private int tintedCount;
+
+    private int dirtyMinX, dirtyMinY, dirtyMaxX = -1, dirtyMaxY = -1; // terrain cells changed since the last repaint
+    private boolean repaintPending;
+
+    public GridCanvas(TerrainGrid grid, double cellSize, IntConsumer onPaint) {
+        this.grid = grid;
+        this.onPaint = onPaint;
+        this.scale = cellSize;
+        this.image = new BufferedImage(grid.width, grid.height, BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int cell = 0; cell < grid.size(); cell++)
+            pixels[cell] = TERRAIN_RGB[grid.get(cell).ordinal()];
+
+        setPreferredSize(new Dimension((int) Math.ceil(grid.width * scale), (int) Math.ceil(grid.height * scale)));
+        setToolTipText("Left: paint with the selected brush, right drag: pan, wheel: zoom");
+        grid.addListener(this);
+
+        MouseAdapter mouse = new Mouse();
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    public void setMarkers(int start, int goal) {
+        repaintCell(this.start);
+        repaintCell(this.goal);
+        this.start = start;
+        this.goal = goal;
+        repaintCell(start);
+        repaintCell(goal);
+    }
+
+    // Shows a new path overlay, initially hidden; reveal it with showPath
+    public void setPath(int[] path) {
+        this.path = path;
+        this.pathShown = 0;
+        repaint();
+    }
+
+    // Draws the first count cells of the path, repainting only the newly revealed ones
+    public void showPath(int count) {
+        count = Math.min(count, path.length);
+        for (int i = pathShown; i < count; i++) repaintCell(path[i]);
+        pathShown = count;
+    }
+
+    public void clearPath() {
+        setPath(new int[0]);
+    }
+
+    // Tints cells a search has just opened and closed; repainted together with any other pending changes
+    public void showSearch(int[] opened, int[] closed) {
+        if (tintedCount + opened.length + closed.length > tinted.length)
+            tinted = Arrays.copyOf(tinted, Math.max(2 * tinted.length, tintedCount + opened.length + closed.length));
+        for (int cell : opened) {
+            pixels[cell] = blend(TERRAIN_RGB[grid.get(cell).ordinal()], OPEN_TINT);
+            tinted[tintedCount++] = cell;
+            markDirty(cell);
+        }
+        for (int cell : closed) {
+            pixels[cell] = blend(TERRAIN_RGB[grid.get(cell).ordinal()], CLOSED_TINT);
+            tinted[tintedCount++] = cell;
+            markDirty(cell);
+        }
+    }
+
+    // Removes every search tint
+    public void clearSearch() {
+        for (int i = 0; i < tintedCount; i++) {
+            pixels[tinted[i]] = TERRAIN_RGB[grid.get(tinted[i]).ordinal()];
+            markDirty(tinted[i]);
+        }
+        tintedCount = 0;
+        if (tinted.length > 1 << 16) tinted = new int[0]; // don't hold on to a huge search
+    }
+
+    private static int blend(int rgb, int tint) {
+        return ((rgb & 0xFEFEFE) >>> 1) + ((tint & 0xFEFEFE) >>> 1);
+    }
+
+    // Keeps the image in step with the grid; bulk edits coalesce into one repaint
+    @Override
+    public void terrainChanged(int cell, TerrainType oldType, TerrainType newType) {
+        pixels[cell] = TERRAIN_RGB[newType.ordinal()];
+        markDirty(cell);
+    }
+
+    // Adds the cell to the area repainted on the next pass of the event queue
+    private void markDirty(int cell) {
+        int x = cell % grid.width, y = cell / grid.width;
+        if (dirtyMaxX < 0) {
+            dirtyMinX = dirtyMaxX = x;
+            dirtyMinY = dirtyMaxY = y;
+        } else {
+            dirtyMinX = Math.min(dirtyMinX, x);
+            dirtyMaxX = Math.max(dirtyMaxX, x);
+            dirtyMinY = Math.min(dirtyMinY, y);
+            dirtyMaxY = Math.max(dirtyMaxY, y);
+        }
+
+        if (!repaintPending) {
+            repaintPending = true;
+            SwingUtilities.invokeLater(() -> {
+                repaintPending = false;
+                repaintCells(dirtyMinX, dirtyMinY, dirtyMaxX, dirtyMaxY);
+                dirtyMaxX = -1;
+            });
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        // visible cell range
+        int x0 = Math.max(0, cellX(clip.x)), x1 = Math.min(grid.width - 1, cellX(clip.x + clip.width - 1));
+        int y0 = Math.max(0, cellY(clip.y)), y1 = Math.min(grid.height - 1, cellY(clip.y + clip.height - 1));
+        if (x0 > x1 || y0 > y1) return;
+
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g2.drawImage(image, screenX(x0), screenY(y0), screenX(x1 + 1), screenY(y1 + 1), x0, y0, x1 + 1, y1 + 1, null);
+
+        if (scale >= GRID_LINE_SCALE) {
+            g.setColor(Color.BLACK);
+            for (int x = x0; x <= x1 + 1; x++) g.drawLine(screenX(x), screenY(y0), screenX(x), screenY(y1 + 1));
+            for (int y = y0; y <= y1 + 1; y++) g.drawLine(screenX(x0), screenY(y), screenX(x1 + 1), screenY(y));
+        }
+
+        // path overlay, start and goal keep their own colors
+        g.setColor(Color.YELLOW);
+        for (int i = 0; i < pathShown; i++) {
+            int cell = path[i];
+            if (cell != start && cell != goal) fillCell(g, cell, x0, y0, x1, y1);
+        }
+        g.setColor(Color.BLUE);
+        if (start >= 0) fillCell(g, start, x0, y0, x1, y1);
+        g.setColor(Color.RED);
+        if (goal >= 0) fillCell(g, goal, x0, y0, x1, y1);
+    }
+
+    // Fills the cell (inside its grid lines) if it lies within the visible range
+    private void fillCell(Graphics g, int cell, int x0, int y0, int x1, int y1) {
+        int x = cell % grid.width, y = cell / grid.width;
+        if (x < x0 || x > x1 || y < y0 || y > y1) return;
+
+        int inset = scale >= GRID_LINE_SCALE ? 1 : 0;
+        int sx = screenX(x), sy = screenY(y);
+        g.fillRect(sx + inset, sy + inset, Math.max(1, screenX(x + 1) - sx - inset), Math.max(1, screenY(y + 1) - sy - inset));
+    }
+
+    private void repaintCell(int cell) {
+        if (cell >= 0) repaintCells(cell % grid.width, cell / grid.width, cell % grid.width, cell / grid.width);
+    }
+
+    private void repaintCells(int minX, int minY, int maxX, int maxY) {
+        int sx = screenX(minX), sy = screenY(minY);
+        repaint(sx, sy, screenX(maxX + 1) - sx + 1, screenY(maxY + 1) - sy + 1);
+    }
+
+    private int screenX(int cellX) {
+        return (int) Math.floor(originX + cellX * scale);
+    }
+
+    private int screenY(int cellY) {
+        return (int) Math.floor(originY + cellY * scale);
+    }
+
+    private int cellX(int screenX) {
+        return (int) Math.floor((screenX - originX) / scale);
+    }
+
+    private int cellY(int screenY) {
+        return (int) Math.floor((screenY - originY) / scale);
+    }
+
+    // Zooms by factor keeping the map point under (px, py) in place; never smaller than fitting the whole map
+    private void zoom(double factor, int px, int py) {
+        double fit = Math.min(getWidth() / (double) grid.width, getHeight() / (double) grid.height);
+        double next = Math.max(Math.min(fit, 1), Math.min(MAX_SCALE, scale * factor));
+        originX = px - (px - originX) * next / scale;
+        originY = py - (py - originY) * next / scale;
+        scale = next;
+        repaint();
+    }
+
+    private final class Mouse extends MouseAdapter {
+        private int lastX, lastY;        // screen position of the last pan event
+        private int lastCell = -1;       // last cell painted during the current drag
+
+        @Override
+        public void mousePressed(MouseEvent e) {
+            lastX = e.getX();
+            lastY = e.getY();
+            if (SwingUtilities.isLeftMouseButton(e)) {
+                lastCell = -1;
+                paintTo(e.getX(), e.getY());
+            }
+        }
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            if (SwingUtilities.isLeftMouseButton(e)) {
+                paintTo(e.getX(), e.getY());
+                return;
+            }
+            originX += e.getX() - lastX;
+            originY += e.getY() - lastY;
+            lastX = e.getX();
+            lastY = e.getY();
+            repaint();
+        }
+
+        @Override
+        public void mouseReleased(MouseEvent e) {
+            lastCell = -1;
+        }
+
+        @Override
+        public void mouseWheelMoved(MouseWheelEvent e) {
+            zoom(Math.pow(1.25, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+        }
+
+        // Paints every cell on the line from the last painted cell, so fast drags leave no gaps
+        private void paintTo(int px, int py) {
+            int x = cellX(px), y = cellY(py);
+            if (x < 0 || y < 0 || x >= grid.width || y >= grid.height) {
+                lastCell = -1;
+                return;
+            }
+
+            int cell = grid.index(x, y);
+            if (cell == lastCell) return;
+            if (lastCell < 0) {
+                onPaint.accept(cell);
+            } else {
+                int fromX = lastCell % grid.width, fromY = lastCell / grid.width;
+                int steps = Math.max(Math.abs(x - fromX), Math.abs(y - fromY));
+                for (int i = 1; i <= steps; i++) {
+                    int sx = fromX + Math.round((x - fromX) * i / (float) steps);
+                    int sy = fromY + Math.round((y - fromY) * i / (float) steps);
+                    onPaint.accept(grid.index(sx, sy));
+                }
+            }
+            lastCell = cell;
+        }
+    }
+}
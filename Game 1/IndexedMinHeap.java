@@ -0,0 +1,143 @@
+/**
+ * Binary min-heap of integer node ids with decrease-key support
+ * Ordered by a primary key, ties broken by a secondary key (smaller first)
+ * Node ids must be in [0, capacity); membership is checked without hashing
+ */
+public class IndexedMinHeap {
+    private final int[] heap;      // node ids in heap order
+    private final int[] primary;   // primary key of the node in each heap slot
+    private final int[] secondary; // secondary key of the node in each heap slot
+    private final int[] position;  // heap slot of each node id (only valid while contained)
+    private int size;
+    private int peak;              // largest size since the last clear()
+
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        primary = new int[capacity];
+        secondary = new int[capacity];
+        position = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Empties the heap in O(1); stale positions are rejected by contains()
+    public void clear() {
+        size = 0;
+        peak = 0;
+    }
+
+    // High-water mark of size() since the last clear()
+    public int peakSize() {
+        return peak;
+    }
+
+    public boolean contains(int id) {
+        int p = position[id];
+        return p < size && heap[p] == id;
+    }
+
+    // Inserts the node, or moves it to its new keys if it is already queued
+    public void push(int id, int primaryKey, int secondaryKey) {
+        if (contains(id)) {
+            int p = position[id];
+            boolean up = less(primaryKey, secondaryKey, primary[p], secondary[p]);
+            primary[p] = primaryKey;
+            secondary[p] = secondaryKey;
+            if (up) siftUp(p); else siftDown(p);
+            return;
+        }
+
+        int p = size++;
+        if (size > peak) peak = size;
+        heap[p] = id;
+        primary[p] = primaryKey;
+        secondary[p] = secondaryKey;
+        position[id] = p;
+        siftUp(p);
+    }
+
+    // Removes and returns the node with the smallest keys
+    public int pop() {
+        int top = heap[0];
+        removeAt(0);
+        return top;
+    }
+
+    // Removes the node if it is queued
+    public void remove(int id) {
+        if (contains(id)) removeAt(position[id]);
+    }
+
+    public int peek() {
+        return heap[0];
+    }
+
+    public int peekPrimary() {
+        return primary[0];
+    }
+
+    public int peekSecondary() {
+        return secondary[0];
+    }
+
+    private void removeAt(int p) {
+        int last = --size;
+        if (p == last) return;
+
+        move(last, p);
+        siftDown(p);
+        siftUp(p);
+    }
+
+    private void siftUp(int p) {
+        int id = heap[p], k1 = primary[p], k2 = secondary[p];
+
+        while (p > 0) {
+            int parent = (p - 1) >>> 1;
+            if (!less(k1, k2, primary[parent], secondary[parent])) break;
+            move(parent, p);
+            p = parent;
+        }
+        place(p, id, k1, k2);
+    }
+
+    private void siftDown(int p) {
+        int id = heap[p], k1 = primary[p], k2 = secondary[p];
+        int half = size >>> 1;
+
+        while (p < half) {
+            int child = 2 * p + 1;
+            int right = child + 1;
+            if (right < size && less(primary[right], secondary[right], primary[child], secondary[child]))
+                child = right;
+            if (!less(primary[child], secondary[child], k1, k2)) break;
+            move(child, p);
+            p = child;
+        }
+        place(p, id, k1, k2);
+    }
+
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        primary[to] = primary[from];
+        secondary[to] = secondary[from];
+        position[heap[to]] = to;
+    }
+
+    private void place(int p, int id, int k1, int k2) {
+        heap[p] = id;
+        primary[p] = k1;
+        secondary[p] = k2;
+        position[id] = p;
+    }
+
+    private static boolean less(int a1, int a2, int b1, int b2) {
+        return a1 < b1 || (a1 == b1 && a2 < b2);
+    }
+}
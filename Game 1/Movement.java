@@ -0,0 +1,47 @@
+/**
+ * How a search may step from cell to cell
+ * FOUR_WAY is the classic up/down/left/right with terrain costs as they are. The 8-way modes add diagonals and
+ * count costs in tenths: a straight step costs 10x the terrain cost of the cell entered, a diagonal one 14x
+ * (about sqrt 2), so their heuristic is the octile distance. They differ in how a diagonal may pass obstacles:
+ * EIGHT_WAY never clips an obstacle's corner, EIGHT_WAY_CUT_CORNERS may, but never squeezes between two
+ */
+public enum Movement {
+    FOUR_WAY(4, 1, 0),
+    EIGHT_WAY(8, 10, 14),
+    EIGHT_WAY_CUT_CORNERS(8, 10, 14);
+
+    // Straight directions first, so 4-way movement just uses the first four
+    static final int[] DX = { 1, -1, 0, 0, 1, -1, 1, -1 };
+    static final int[] DY = { 0, 0, 1, -1, 1, 1, -1, -1 };
+
+    public final int directions;        // entries of DX/DY in use
+    public final int straight, diagonal; // cost multipliers of one step, by kind
+
+    Movement(int directions, int straight, int diagonal) {
+        this.directions = directions;
+        this.straight = straight;
+        this.diagonal = diagonal;
+    }
+
+    /**
+     * Cost of stepping from (x, y) in direction k (index into DX/DY), or -1 if that move is not allowed:
+     * off the map, onto an obstacle, or a diagonal past obstacles the corner rule forbids
+     */
+    int stepCost(TerrainGrid grid, int x, int y, int k) {
+        int nx = x + DX[k], ny = y + DY[k];
+        if (nx < 0 || ny < 0 || nx >= grid.width || ny >= grid.height) return -1;
+        int to = ny * grid.width + nx;
+        if (grid.isBlocked(to)) return -1;
+        if (k < 4) return straight * grid.cost(to);
+
+        boolean sideX = grid.isBlocked(y * grid.width + nx), sideY = grid.isBlocked(ny * grid.width + x);
+        if (this == EIGHT_WAY ? sideX || sideY : sideX && sideY) return -1;
+        return diagonal * grid.cost(to);
+    }
+
+    // Cheapest possible cost of covering dx by dy cells (both >= 0) on the cheapest terrain: Manhattan or octile
+    int heuristic(int dx, int dy) {
+        if (directions == 4) return dx + dy;
+        return straight * (dx + dy) + (diagonal - 2 * straight) * Math.min(dx, dy);
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Solves many start/goal queries against one TerrainGrid in parallel on a ForkJoin pool
+ * Each worker thread keeps its own PathSearch scratch buffers across batches, so workers never share search state.
+ * The grid must not be edited while a batch runs; hand in grid.copy() if the original keeps changing.
+ */
+public class PathBatch {
+    private static final int GRAIN = 16; // queries per task once splitting stops
+    private static final int[] EMPTY = new int[0];
+    private static final ThreadLocal<PathSearch> SEARCH = ThreadLocal.withInitial(PathSearch::new);
+
+    private final ForkJoinPool pool;
+
+    // Answers for one batch, in the same order as the queries
+    public static final class Result {
+        public final int[][] paths;  // cell indices from start to goal, empty if no path found
+        public final int[] costs;    // path costs, PathSearch.NO_PATH if none
+        public final int[] expanded; // nodes expanded per query
+
+        Result(int size) {
+            paths = new int[size][];
+            costs = new int[size];
+            expanded = new int[size];
+        }
+
+        public long totalExpanded() {
+            long total = 0;
+            for (int e : expanded) total += e;
+            return total;
+        }
+    }
+
+    public PathBatch() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public PathBatch(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Query i goes from starts[i] to goals[i]
+    public Result solve(TerrainGrid grid, int[] starts, int[] goals) {
+        if (starts.length != goals.length)
+            throw new IllegalArgumentException("starts and goals must have the same length");
+
+        Result result = new Result(starts.length);
+        pool.invoke(new Solve(grid, starts, goals, result, 0, starts.length));
+        return result;
+    }
+
+    // Splits the query range in halves until it is small enough to run on one worker
+    private static final class Solve extends RecursiveAction {
+        private final TerrainGrid grid;
+        private final int[] starts, goals;
+        private final Result result;
+        private final int from, to;
+
+        Solve(TerrainGrid grid, int[] starts, int[] goals, Result result, int from, int to) {
+            this.grid = grid;
+            this.starts = starts;
+            this.goals = goals;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Solve(grid, starts, goals, result, from, mid),
+                          new Solve(grid, starts, goals, result, mid, to));
+                return;
+            }
+
+            PathSearch search = SEARCH.get();
+            PathMetrics metrics = PathMetrics.active();
+            for (int i = from; i < to; i++) {
+                long begin = metrics != null ? System.nanoTime() : 0;
+                int cost = search.search(grid, starts[i], goals[i]);
+                if (metrics != null)
+                    metrics.recordQuery(System.nanoTime() - begin, search.expanded(), search.peakOpen(), cost != PathSearch.NO_PATH);
+                int[] path = EMPTY;
+                if (cost != PathSearch.NO_PATH) {
+                    path = new int[search.pathLength()];
+                    search.copyPath(path);
+                }
+
+                result.paths[i] = path;
+                result.costs[i] = cost;
+                result.expanded[i] = search.expanded();
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of A* results over a TerrainGrid, keyed on (start, goal) for the terrain version it has seen
+ * Terrain edits are applied selectively: a cell that got more expensive drops only the cached paths running
+ * through it, and a cell that got cheaper drops only the paths it could possibly shorten (plus cached "no path"
+ * answers). Everything else stays valid for the new terrain version.
+ * Returned arrays are shared with the cache and must not be modified. Not thread-safe.
+ */
+public class PathCache implements TerrainListener {
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int[] EMPTY = new int[0];
+
+    private final TerrainGrid grid;
+    private final PathSearch search = new PathSearch();
+    private final LinkedHashMap<Long, Entry> entries;
+    private int version; // terrain version the cached entries are valid for
+
+    private long hits, misses, invalidated;
+    private int expanded; // nodes expanded by the last lookup, 0 on a hit
+
+    // One cached answer; bounding box lets most edits skip the path scan
+    private static final class Entry {
+        final int start, goal, cost;
+        final int[] path;
+        final int minX, minY, maxX, maxY;
+
+        Entry(int start, int goal, int cost, int[] path, int width) {
+            this.start = start;
+            this.goal = goal;
+            this.cost = cost;
+            this.path = path;
+
+            int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE, x1 = -1, y1 = -1;
+            for (int c : path) {
+                x0 = Math.min(x0, c % width);
+                y0 = Math.min(y0, c / width);
+                x1 = Math.max(x1, c % width);
+                y1 = Math.max(y1, c / width);
+            }
+            minX = x0; minY = y0; maxX = x1; maxY = y1;
+        }
+
+        // Path cells entered after the start, i.e. the ones whose cost was paid
+        boolean enters(int cell, int x, int y) {
+            if (x < minX || x > maxX || y < minY || y > maxY) return false;
+            for (int i = 1; i < path.length; i++)
+                if (path[i] == cell) return true;
+            return false;
+        }
+    }
+
+    public PathCache(TerrainGrid grid, int capacity) {
+        this.grid = grid;
+        this.version = grid.version();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+        grid.addListener(this);
+    }
+
+    // Returns the path from start to goal as cell indices, empty if no path found
+    public int[] findPath(int start, int goal) {
+        int[] cached = lookup(start, goal);
+        if (cached != null) return cached;
+
+        PathMetrics metrics = PathMetrics.active();
+        long begin = metrics != null ? System.nanoTime() : 0;
+        int cost = search.search(grid, start, goal);
+        expanded = search.expanded();
+        if (metrics != null)
+            metrics.recordQuery(System.nanoTime() - begin, expanded, search.peakOpen(), cost != PathSearch.NO_PATH);
+
+        int[] path = EMPTY;
+        if (cost != PathSearch.NO_PATH) {
+            path = new int[search.pathLength()];
+            search.copyPath(path);
+        }
+        put(start, goal, cost, path, grid.version());
+        return path;
+    }
+
+    // Cached path from start to goal (empty if known unreachable), or null on a miss
+    public int[] lookup(int start, int goal) {
+        // Edits made while we weren't listening can't be checked selectively
+        if (version != grid.version()) {
+            invalidated += entries.size();
+            entries.clear();
+            version = grid.version();
+        }
+
+        PathMetrics metrics = PathMetrics.active();
+        Entry entry = entries.get(key(start, goal));
+        if (metrics != null) metrics.recordCache(entry != null);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        expanded = 0;
+        return entry.path;
+    }
+
+    /**
+     * Stores a result searched elsewhere (e.g. on a worker thread) over terrain version searchedVersion;
+     * dropped if the terrain has changed since. cost is PathSearch.NO_PATH for an empty path
+     */
+    public void put(int start, int goal, int cost, int[] path, int searchedVersion) {
+        if (searchedVersion != grid.version()) return;
+        entries.put(key(start, goal), new Entry(start, goal, cost == PathSearch.NO_PATH ? INF : cost, path, grid.width));
+    }
+
+    private static Long key(int start, int goal) {
+        return ((long) start << 32) | (goal & 0xffffffffL);
+    }
+
+    @Override
+    public void terrainChanged(int cell, TerrainType oldType, TerrainType newType) {
+        int oldCost = oldType == TerrainType.OBSTACLE ? INF : oldType.cost;
+        int newCost = newType == TerrainType.OBSTACLE ? INF : newType.cost;
+        int x = cell % grid.width, y = cell / grid.width;
+
+        if (newCost != oldCost) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry e = it.next();
+                boolean stale = newCost > oldCost ? e.enters(cell, x, y) : couldImprove(e, cell, x, y, newCost);
+                if (stale) {
+                    it.remove();
+                    invalidated++;
+                }
+            }
+        }
+        version = grid.version();
+    }
+
+    // Cheapest conceivable route through the cell: every other step costs at least 1
+    private boolean couldImprove(Entry e, int cell, int x, int y, int newCost) {
+        if (e.cost == INF) return true;
+        if (cell == e.start) return false;
+
+        int toCell = Math.abs(e.start % grid.width - x) + Math.abs(e.start / grid.width - y);
+        int toGoal = Math.abs(e.goal % grid.width - x) + Math.abs(e.goal / grid.width - y);
+        long bound = (long) toCell - 1 + newCost + toGoal;
+        return bound < e.cost;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int expanded() {
+        return expanded;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    // Entries dropped because of terrain edits
+    public long invalidated() {
+        return invalidated;
+    }
+}
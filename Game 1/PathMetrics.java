@@ -0,0 +1,203 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and timers for pathfinding queries (every pathfinder, PathCache, PathBatch), safe to update from any thread
+ * Off by default: the query paths only check active() once per query, and time nothing while it is null.
+ * Once enabled, the numbers can be read over JMX and/or printed periodically as text or CSV
+ */
+public final class PathMetrics implements PathMetricsMBean {
+    private static final int BUCKETS = 32; // latency histogram: bucket b counts queries under 2^b microseconds
+    private static volatile PathMetrics active;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder found = new LongAdder();
+    private final LongAdder expanded = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final AtomicLong peakOpen = new AtomicLong();
+    private final AtomicLongArray latency = new AtomicLongArray(BUCKETS);
+    private ScheduledExecutorService dumper;
+
+    private PathMetrics() {}
+
+    // The metrics being recorded, or null when disabled
+    static PathMetrics active() {
+        return active;
+    }
+
+    // Starts recording (keeping the current counters if already on) and registers the MBean
+    public static synchronized PathMetrics enable() {
+        if (active != null) return active;
+        PathMetrics metrics = new PathMetrics();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name());
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register pathfinding metrics", e);
+        }
+        active = metrics;
+        return metrics;
+    }
+
+    public static synchronized void disable() {
+        if (active == null) return;
+        active.stopDump();
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name());
+        } catch (JMException e) {
+            // already gone
+        }
+        active = null;
+    }
+
+    private static ObjectName name() throws JMException {
+        return new ObjectName("AStarAntColony:type=Pathfinding");
+    }
+
+    void recordQuery(long nanos, int nodesExpanded, int openPeak, boolean pathFound) {
+        queries.increment();
+        if (pathFound) found.increment();
+        expanded.add(nodesExpanded);
+        latencyNanos.add(nanos);
+        latency.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos / 1000)));
+        if (openPeak > peakOpen.get()) peakOpen.accumulateAndGet(openPeak, Math::max);
+    }
+
+    void recordCache(boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+
+    // Prints a line every periodMillis on a daemon thread: CSV rows (after a header) or a readable summary
+    public synchronized void startDump(PrintStream out, long periodMillis, boolean csv) {
+        stopDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "path-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        if (csv) out.println(csvHeader());
+        dumper.scheduleAtFixedRate(() -> out.println(csv ? csvRow() : toString()), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopDump() {
+        if (dumper != null) dumper.shutdown();
+        dumper = null;
+    }
+
+    public static String csvHeader() {
+        return "queries,found,expanded,peak_open,mean_latency_us,p50_us,p99_us,cache_hits,cache_misses";
+    }
+
+    public String csvRow() {
+        return String.format("%d,%d,%d,%d,%.1f,%d,%d,%d,%d", getQueries(), getPathsFound(), getNodesExpanded(),
+                getPeakOpenSet(), getMeanLatencyMicros(), getLatencyP50Micros(), getLatencyP99Micros(),
+                getCacheHits(), getCacheMisses());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("paths: %d queries (%d found), %.0f expanded/query, peak open %d, latency mean %.1f us"
+                        + " p50 <%d us p99 <%d us, cache hit rate %.1f%%", getQueries(), getPathsFound(),
+                getMeanNodesExpanded(), getPeakOpenSet(), getMeanLatencyMicros(), getLatencyP50Micros(),
+                getLatencyP99Micros(), 100 * getCacheHitRate());
+    }
+
+    @Override
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    @Override
+    public long getPathsFound() {
+        return found.sum();
+    }
+
+    @Override
+    public long getNodesExpanded() {
+        return expanded.sum();
+    }
+
+    @Override
+    public double getMeanNodesExpanded() {
+        long q = getQueries();
+        return q == 0 ? 0 : getNodesExpanded() / (double) q;
+    }
+
+    @Override
+    public long getPeakOpenSet() {
+        return peakOpen.get();
+    }
+
+    @Override
+    public double getMeanLatencyMicros() {
+        long q = getQueries();
+        return q == 0 ? 0 : latencyNanos.sum() / 1000.0 / q;
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return percentile(0.50);
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        long[] counts = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) counts[b] = latency.get(b);
+        return counts;
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        long hits = getCacheHits(), total = hits + getCacheMisses();
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
+    @Override
+    public void reset() {
+        queries.reset();
+        found.reset();
+        expanded.reset();
+        latencyNanos.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        peakOpen.set(0);
+        for (int b = 0; b < BUCKETS; b++) latency.set(b, 0);
+    }
+
+    // Upper bound (in microseconds) of the histogram bucket holding the given fraction of queries
+    private long percentile(double fraction) {
+        long[] counts = getLatencyHistogram();
+        long total = 0;
+        for (long c : counts) total += c;
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen > 0 && seen >= fraction * total) return 1L << b;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * JMX view of PathMetrics (registered as AStarAntColony:type=Pathfinding)
+ */
+public interface PathMetricsMBean {
+    long getQueries();
+    long getPathsFound();
+    long getNodesExpanded();
+    double getMeanNodesExpanded();
+    long getPeakOpenSet();
+    double getMeanLatencyMicros();
+    long getLatencyP50Micros();
+    long getLatencyP99Micros();
+    long[] getLatencyHistogram();
+    long getCacheHits();
+    long getCacheMisses();
+    double getCacheHitRate();
+    void reset();
+}
@@ -0,0 +1,280 @@
+/**
+ * Reusable A* search over a TerrainGrid
+ * All per-query state (costs, parents, open list) lives in primitive arrays owned by this object,
+ * and is invalidated between queries with a generation stamp instead of a full-grid reset.
+ * One instance per thread: any number of instances can search the same grid concurrently.
+ * Searches are 4-way and exact by default; setMovement() allows diagonals and setWeight() trades optimality for speed.
+ */
+public class PathSearch {
+    public static final int NO_PATH = -1;
+    public static final int RUNNING = -2; // advance() ran out of budget before the query was decided
+    private static final int[] EMPTY = new int[0];
+
+    private int[] gCost = EMPTY;   // best known cost from start, valid when stamped this generation
+    private int[] parent = EMPTY;  // previous cell on the best known path
+    private int[] stamp = EMPTY;   // generation << 1 when opened, | 1 once closed
+    private IndexedMinHeap open = new IndexedMinHeap(0);
+    private int generation;
+
+    private int goal = -1;         // goal of the last successful query, -1 if none
+    private int expanded;          // nodes closed by the last query
+    private int target = -1;       // goal of the query advance() is working on
+    private Movement movement = Movement.FOUR_WAY;
+    private double weight = 1;     // heuristic inflation; paths then cost at most weight x the optimum
+
+    // Hears about every node an incremental query opens (or reopens at a lower cost) and closes
+    public interface Observer {
+        void opened(int cell);
+
+        void closed(int cell);
+    }
+
+    // Moves search(grid, start, goal) and advance() may make; costs are then in that movement's units
+    public void setMovement(Movement movement) {
+        this.movement = movement;
+    }
+
+    public Movement movement() {
+        return movement;
+    }
+
+    // Weighted A*: the heuristic is multiplied by weight (>= 1), which expands far fewer nodes on open maps
+    public void setWeight(double weight) {
+        if (!(weight >= 1)) throw new IllegalArgumentException("Weight must be at least 1: " + weight);
+        this.weight = weight;
+    }
+
+    public double weight() {
+        return weight;
+    }
+
+    /**
+     * Runs one query and returns the path cost, or NO_PATH
+     * The path itself can then be read with pathLength() and copyPath() without allocating
+     */
+    public int search(TerrainGrid grid, int start, int goal) {
+        if (movement == Movement.FOUR_WAY && weight == 1)
+            return search(grid, start, goal, 0, 0, grid.width - 1, grid.height - 1);
+        start(grid, start, goal);
+        return advance(grid, Integer.MAX_VALUE, null);
+    }
+
+    // Same query, restricted to cells inside [minX, maxX] x [minY, maxY]; always 4-way and unweighted
+    public int search(TerrainGrid grid, int start, int goal, int minX, int minY, int maxX, int maxY) {
+        begin(grid.size());
+
+        int width = grid.width;
+        int goalX = goal % width, goalY = goal / width;
+        offer(start, 0, -1, Math.abs(start % width - goalX) + Math.abs(start / width - goalY));
+
+        int current;
+        while ((current = poll()) != -1) {
+            if (current == goal) {
+                finish(goal);
+                return gCost[goal];
+            }
+
+            int x = current % width, y = current / width;
+            int g = gCost[current];
+            if (x > minX) step(grid, current, current - 1, g, x - 1, y, goalX, goalY);
+            if (x < maxX) step(grid, current, current + 1, g, x + 1, y, goalX, goalY);
+            if (y > minY) step(grid, current, current - width, g, x, y - 1, goalX, goalY);
+            if (y < maxY) step(grid, current, current + width, g, x, y + 1, goalX, goalY);
+        }
+
+        return NO_PATH;
+    }
+
+    /**
+     * Starts the same query as search(grid, start, goal), with the same movement and weight, without running it;
+     * advance() then runs it in slices, so a caller can check for cancellation and show progress in between
+     */
+    public void start(TerrainGrid grid, int start, int goal) {
+        begin(grid.size());
+        target = goal;
+        int width = grid.width;
+        offer(start, 0, -1, heuristic(start % width, start / width, goal % width, goal / width));
+    }
+
+    /**
+     * Closes up to budget more nodes of the query begun by start(); returns the path cost once the goal is
+     * reached, NO_PATH once nothing is left to expand, and RUNNING otherwise. The grid must not change in
+     * between. observer (may be null) is told about each node as it is opened and closed
+     */
+    public int advance(TerrainGrid grid, int budget, Observer observer) {
+        int width = grid.width;
+        int goalX = target % width, goalY = target / width;
+
+        for (int n = 0; n < budget; n++) {
+            int current = poll();
+            if (current == -1) return NO_PATH;
+            if (observer != null) observer.closed(current);
+            if (current == target) {
+                finish(target);
+                return gCost[target];
+            }
+
+            int x = current % width, y = current / width;
+            int g = gCost[current];
+            for (int k = 0; k < movement.directions; k++) {
+                int cost = movement.stepCost(grid, x, y, k);
+                if (cost < 0) continue;
+                int nx = x + Movement.DX[k], ny = y + Movement.DY[k];
+                int next = ny * width + nx;
+                if (offer(next, g + cost, current, heuristic(nx, ny, goalX, goalY)) && observer != null)
+                    observer.opened(next);
+            }
+        }
+        return open.isEmpty() ? NO_PATH : RUNNING;
+    }
+
+    /**
+     * Dijkstra from source over the rectangle until every reachable cell is settled; read results with distance()
+     * Forward: distance(c) is the cost of walking source -> c. Reverse: the cost of walking c -> source.
+     */
+    public void flood(TerrainGrid grid, int source, boolean reverse, int minX, int minY, int maxX, int maxY) {
+        begin(grid.size());
+        if (reverse && grid.isBlocked(source)) return; // nothing can walk onto it
+
+        int width = grid.width;
+        offer(source, 0, -1, 0);
+
+        int current;
+        while ((current = poll()) != -1) {
+            int x = current % width, y = current / width;
+            int g = gCost[current];
+            int enter = reverse ? grid.cost(current) : 0;
+            if (x > minX) flow(grid, current, current - 1, g, enter, reverse);
+            if (x < maxX) flow(grid, current, current + 1, g, enter, reverse);
+            if (y > minY) flow(grid, current, current - width, g, enter, reverse);
+            if (y < maxY) flow(grid, current, current + width, g, enter, reverse);
+        }
+    }
+
+    // Cost settled by the last flood(), NO_PATH if the cell was not reached
+    public int distance(int cell) {
+        return stamp[cell] == ((generation << 1) | 1) ? gCost[cell] : NO_PATH;
+    }
+
+    // Convenience wrapper returning the path as cell indices from start to goal (empty if unreachable)
+    public int[] findPath(TerrainGrid grid, int start, int goal) {
+        if (search(grid, start, goal) == NO_PATH) return EMPTY;
+        int[] path = new int[pathLength()];
+        copyPath(path);
+        return path;
+    }
+
+    // Number of cells (start and goal included) on the last path found, 0 if none
+    public int pathLength() {
+        int length = 0;
+        for (int c = goal; c != -1; c = parent[c])
+            length++;
+        return length;
+    }
+
+    // Writes the last path into out (start first) and returns its length; out must hold pathLength() cells
+    public int copyPath(int[] out) {
+        int length = pathLength();
+        int i = length;
+        for (int c = goal; c != -1; c = parent[c])
+            out[--i] = c;
+        return length;
+    }
+
+    public int expanded() {
+        return expanded;
+    }
+
+    // Largest open list size reached by the last query
+    public int peakOpen() {
+        return open.peakSize();
+    }
+
+    // ---- Generic best-first primitives, also used to search graphs other than the grid (e.g. the HPA* abstract graph) ----
+    // Node ids must be below the cell count passed to begin()
+
+    // Starts a new query, growing the scratch arrays only when a larger grid shows up
+    void begin(int cells) {
+        if (stamp.length < cells) {
+            gCost = new int[cells];
+            parent = new int[cells];
+            stamp = new int[cells];
+            open = new IndexedMinHeap(cells);
+            generation = 0;
+        }
+
+        if (++generation >= (1 << 30)) {
+            java.util.Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        open.clear();
+        goal = -1;
+        expanded = 0;
+    }
+
+    // Opens the node or lowers its cost; closed nodes are never reopened. That loses nothing at weight 1, where every
+    // heuristic used here is consistent, and above it the path still costs at most weight x the optimum
+    boolean offer(int node, int g, int from, int h) {
+        int openMark = generation << 1;
+        int s = stamp[node];
+        if (s == (openMark | 1) || (s == openMark && g >= gCost[node])) return false;
+
+        stamp[node] = openMark;
+        gCost[node] = g;
+        parent[node] = from;
+        open.push(node, g + h, h);
+        return true;
+    }
+
+    // Closes and returns the open node with the lowest f (lowest h on ties), or -1 when the open list is empty
+    int poll() {
+        if (open.isEmpty()) return -1;
+        int node = open.pop();
+        stamp[node] |= 1;
+        expanded++;
+        return node;
+    }
+
+    int openSize() {
+        return open.size();
+    }
+
+    // f of the next node poll() would return; only valid while openSize() > 0
+    int topKey() {
+        return open.peekPrimary();
+    }
+
+    // True if the node was opened (and possibly closed) in the current query
+    boolean reached(int node) {
+        return (stamp[node] >>> 1) == generation;
+    }
+
+    int gCost(int node) {
+        return gCost[node];
+    }
+
+    int parent(int node) {
+        return parent[node];
+    }
+
+    // Marks node as the end of the path read by pathLength()/copyPath()
+    void finish(int node) {
+        goal = node;
+    }
+
+    private void step(TerrainGrid grid, int from, int to, int g, int x, int y, int goalX, int goalY) {
+        if (grid.isBlocked(to)) return;
+        offer(to, g + grid.cost(to), from, Math.abs(x - goalX) + Math.abs(y - goalY));
+    }
+
+    // Movement's heuristic from (x, y) to the goal, inflated by the weight
+    private int heuristic(int x, int y, int goalX, int goalY) {
+        int h = movement.heuristic(Math.abs(x - goalX), Math.abs(y - goalY));
+        return weight == 1 ? h : (int) (h * weight);
+    }
+
+    private void flow(TerrainGrid grid, int from, int to, int g, int enter, boolean reverse) {
+        if (grid.isBlocked(to)) return;
+        offer(to, g + (reverse ? enter : grid.cost(to)), from, 0);
+    }
+}
@@ -0,0 +1,252 @@
+import javax.swing.*;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * Runs one path query at a time on a background thread, so a large search never blocks the EDT
+ * A* advances in slices of STEP_BUDGET expanded nodes. After each slice the cells it opened and closed
+ * are handed to the listener on the EDT as one batch, and the search stops early if it has been cancelled.
+ * ARA* and the other pathfinders (as a Query) report no progress; they check for cancellation as they go.
+ * Starting a new search cancels the previous one; batches of a cancelled search are never delivered.
+ * The grid and the pathfinders are used in place, so whoever edits the grid must cancel the search first
+ * (Game1GUI does on every edit); cancel() returns once the worker has stopped touching them
+ */
+public class SearchWorker {
+    private static final int STEP_BUDGET = 4096;    // nodes expanded between progress batches / cancellation checks
+    private static final int BATCHES_IN_FLIGHT = 4; // batches posted to the EDT but not yet painted
+
+    // Called on the EDT
+    public interface Listener {
+        // Cells opened and closed since the last batch, and the nodes expanded so far
+        void progress(int[] opened, int[] closed, int expanded);
+
+        // path is empty if the goal can't be reached; cost is PathSearch.NO_PATH then. The path costs at most
+        // bound x the optimum, bound is 0 if the pathfinder has none
+        void finished(int[] path, int cost, int expanded, double bound);
+    }
+
+    // A whole query for the worker thread: returns the path, empty if there is none or once cancelled says so
+    public interface Query {
+        int[] run(BooleanSupplier cancelled);
+    }
+
+    private final ExecutorService thread = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "path-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private final PathSearch search = new PathSearch(); // only used on the worker thread
+    private final AnytimeSearch anytime = new AnytimeSearch(); // likewise
+    private Job current;
+
+    // Cancels any search in progress and starts a new one (weight 1 = exact A*); must be called on the EDT
+    public void start(TerrainGrid grid, int start, int goal, Movement movement, double weight, Listener listener) {
+        run(new AStarJob(grid, start, goal, movement, weight, listener));
+    }
+
+    // Cancels any search in progress and starts ARA* from initialWeight, refining for up to budgetNanos; must be called on the EDT
+    public void startAnytime(TerrainGrid grid, int start, int goal, Movement movement, double initialWeight, long budgetNanos, Listener listener) {
+        run(new AnytimeJob(grid, start, goal, movement, initialWeight, budgetNanos, listener));
+    }
+
+    /**
+     * Cancels any search in progress and runs query; its 4-way path is costed over grid, and expanded is read
+     * right after it on the worker thread. Must be called on the EDT
+     */
+    public void start(TerrainGrid grid, Query query, IntSupplier expanded, Listener listener) {
+        run(new QueryJob(grid, query, expanded, listener));
+    }
+
+    private void run(Job job) {
+        cancel();
+        current = job;
+        thread.execute(job);
+    }
+
+    /**
+     * Stops the search in progress, if any, and waits until the worker has let go of the grid and the
+     * pathfinders (at most a slice of work); nothing more is delivered for it. Must be called on the EDT
+     */
+    public void cancel() {
+        Job job = current;
+        if (job == null) return;
+        current = null;
+        job.cancelled = true;
+        job.wake();
+        try {
+            job.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return current != null;
+    }
+
+    // One query; done opens once it has stopped running (or was cancelled before it started)
+    private abstract class Job implements Runnable {
+        final Listener listener;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile boolean cancelled;
+
+        Job(Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!cancelled) search();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        abstract void search();
+
+        // Called after cancelled is set, to unblock a job waiting for something other than the search
+        void wake() {}
+
+        // Hands the result to the listener on the EDT unless the job is cancelled by then
+        void deliver(int[] path, int cost, int expanded, double bound) {
+            SwingUtilities.invokeLater(() -> {
+                if (cancelled) return;
+                current = null;
+                listener.finished(path, cost, expanded, bound);
+            });
+        }
+    }
+
+    private final class AnytimeJob extends Job {
+        private final TerrainGrid grid;
+        private final int start, goal;
+        private final Movement movement;
+        private final double initialWeight;
+        private final long budgetNanos;
+
+        AnytimeJob(TerrainGrid grid, int start, int goal, Movement movement, double initialWeight, long budgetNanos, Listener listener) {
+            super(listener);
+            this.grid = grid;
+            this.start = start;
+            this.goal = goal;
+            this.movement = movement;
+            this.initialWeight = initialWeight;
+            this.budgetNanos = budgetNanos;
+        }
+
+        @Override
+        void search() {
+            anytime.setMovement(movement);
+            int[] path = anytime.findPath(grid, start, goal, initialWeight, budgetNanos, () -> cancelled);
+            if (!cancelled) deliver(path, anytime.cost(), anytime.expanded(), anytime.bound());
+        }
+    }
+
+    private final class QueryJob extends Job {
+        private final TerrainGrid grid;
+        private final Query query;
+        private final IntSupplier expanded;
+
+        QueryJob(TerrainGrid grid, Query query, IntSupplier expanded, Listener listener) {
+            super(listener);
+            this.grid = grid;
+            this.query = query;
+            this.expanded = expanded;
+        }
+
+        @Override
+        void search() {
+            int[] path = query.run(() -> cancelled);
+            if (cancelled) return;
+            int cost = path.length == 0 ? PathSearch.NO_PATH : 0;
+            for (int i = 1; i < path.length; i++) cost += grid.cost(path[i]);
+            deliver(path, cost, expanded.getAsInt(), 0);
+        }
+    }
+
+    private final class AStarJob extends Job implements PathSearch.Observer {
+        private final TerrainGrid grid;
+        private final int start, goal;
+        private final Movement movement;
+        private final double weight;
+        private final Semaphore slots = new Semaphore(BATCHES_IN_FLIGHT);
+
+        private int[] opened = new int[4 * STEP_BUDGET], closed = new int[STEP_BUDGET];
+        private int openedCount, closedCount;
+
+        AStarJob(TerrainGrid grid, int start, int goal, Movement movement, double weight, Listener listener) {
+            super(listener);
+            this.grid = grid;
+            this.start = start;
+            this.goal = goal;
+            this.movement = movement;
+            this.weight = weight;
+        }
+
+        @Override
+        void search() {
+            PathMetrics metrics = PathMetrics.active();
+            long begin = System.nanoTime();
+
+            search.setMovement(movement);
+            search.setWeight(weight);
+            search.start(grid, start, goal);
+            int cost;
+            do {
+                cost = search.advance(grid, STEP_BUDGET, this);
+                if (!publish()) return; // cancelled
+            } while (cost == PathSearch.RUNNING);
+
+            if (metrics != null) // time includes waiting for the EDT to paint
+                metrics.recordQuery(System.nanoTime() - begin, search.expanded(), search.peakOpen(), cost != PathSearch.NO_PATH);
+            int[] path = cost == PathSearch.NO_PATH ? new int[0] : new int[search.pathLength()];
+            search.copyPath(path);
+            deliver(path, cost, search.expanded(), weight);
+        }
+
+        // A publish() waiting for the EDT to paint returns right away
+        @Override
+        void wake() {
+            slots.release(BATCHES_IN_FLIGHT);
+        }
+
+        // Posts the current batch to the EDT, waiting while too many are queued; false once cancelled
+        private boolean publish() {
+            try {
+                while (!slots.tryAcquire(50, TimeUnit.MILLISECONDS))
+                    if (cancelled) return false;
+            } catch (InterruptedException e) {
+                return false;
+            }
+            if (cancelled) return false;
+
+            int[] o = Arrays.copyOf(opened, openedCount), c = Arrays.copyOf(closed, closedCount);
+            int expanded = search.expanded();
+            openedCount = closedCount = 0;
+            SwingUtilities.invokeLater(() -> {
+                slots.release();
+                if (!cancelled) listener.progress(o, c, expanded);
+            });
+            return true;
+        }
+
+        @Override
+        public void opened(int cell) {
+            if (openedCount == opened.length) opened = Arrays.copyOf(opened, openedCount * 2);
+            opened[openedCount++] = cell;
+        }
+
+        @Override
+        public void closed(int cell) {
+            if (closedCount == closed.length) closed = Arrays.copyOf(closed, closedCount * 2);
+            closed[closedCount++] = cell;
+        }
+    }
+}
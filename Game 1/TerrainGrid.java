@@ -0,0 +1,85 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact terrain grid read by the pathfinding engine
+ * Stores one byte per cell (the TerrainType ordinal) in a flat row-major array, cell index = y * width + x
+ * Searches only read the grid, so one grid that is no longer edited can be shared by any number of threads
+ */
+public class TerrainGrid {
+    private static final TerrainType[] TYPES = TerrainType.values();
+    private static final byte OBSTACLE = (byte) TerrainType.OBSTACLE.ordinal();
+
+    public final int width, height;
+    private final byte[] terrain;
+    private final List<TerrainListener> listeners = new ArrayList<>();
+    private int version; // bumped on every effective edit
+
+    public TerrainGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.terrain = new byte[width * height]; // all OPEN (ordinal 0)
+    }
+
+    // Independent copy (without listeners), e.g. a frozen snapshot to hand to worker threads while the original keeps being edited
+    public TerrainGrid copy() {
+        TerrainGrid grid = new TerrainGrid(width, height);
+        System.arraycopy(terrain, 0, grid.terrain, 0, terrain.length);
+        return grid;
+    }
+
+    // Backing array (TerrainType ordinals) for bulk loaders like TerrainMap; writes through it skip listeners and version
+    byte[] raw() {
+        return terrain;
+    }
+
+    public int size() {
+        return terrain.length;
+    }
+
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    public TerrainType get(int cell) {
+        return TYPES[terrain[cell]];
+    }
+
+    public TerrainType get(int x, int y) {
+        return TYPES[terrain[y * width + x]];
+    }
+
+    // Changes one cell and notifies listeners if the type actually changed
+    public void set(int x, int y, TerrainType type) {
+        int cell = y * width + x;
+        TerrainType old = TYPES[terrain[cell]];
+        if (old == type) return;
+
+        terrain[cell] = (byte) type.ordinal();
+        version++;
+        for (TerrainListener listener : listeners)
+            listener.terrainChanged(cell, old, type);
+    }
+
+    // Changes whenever any cell changes, so derived data can tell whether it is still current
+    public int version() {
+        return version;
+    }
+
+    public void addListener(TerrainListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(TerrainListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean isBlocked(int cell) {
+        return terrain[cell] == OBSTACLE;
+    }
+
+    // Cost of stepping onto the cell (meaningless for obstacles, check isBlocked first)
+    public int cost(int cell) {
+        return TYPES[terrain[cell]].cost;
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Notified by TerrainGrid after a cell's terrain type changes
+ * Lets planners with precomputed state repair only what the edit touched
+ */
+public interface TerrainListener {
+    void terrainChanged(int cell, TerrainType oldType, TerrainType newType);
+}
@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Terrain map file for TerrainGrid
+ * Header (big-endian): magic "TMAP", version, width, height, encoding byte. The cells follow in row-major order:
+ *  - NIBBLES: two cells per byte (TerrainType ordinal, low nibble first)
+ *  - RUNS: run-length encoded, each run a type byte followed by its length as an unsigned LEB128 varint
+ * Loading maps the file in windows and decodes straight into the grid's byte array, so no per-cell objects
+ * are created and memory use is the grid itself; saving streams through a 64 KB buffer
+ */
+public final class TerrainMap {
+    public static final byte NIBBLES = 0, RUNS = 1;
+    private static final int MAGIC = 0x544D4150; // "TMAP"
+    private static final int VERSION = 1;
+    private static final int HEADER = 4 * 4 + 1;
+    private static final int WINDOW = 1 << 30; // largest region mapped at once
+    private static final int TYPES = TerrainType.values().length;
+
+    private TerrainMap() {}
+
+    public static TerrainGrid load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER) throw new IOException(file + " is not a terrain map");
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (header.getInt() != MAGIC) throw new IOException(file + " is not a terrain map");
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported terrain map version " + version + " in " + file);
+
+            int width = header.getInt(), height = header.getInt();
+            byte encoding = header.get();
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE)
+                throw new IOException("Bad map size " + width + "x" + height + " in " + file);
+
+            TerrainGrid grid = new TerrainGrid(width, height);
+            Input in = new Input(channel, HEADER);
+            switch (encoding) {
+                case NIBBLES -> readNibbles(in, grid.raw());
+                case RUNS -> readRuns(in, grid.raw());
+                default -> throw new IOException("Unknown encoding " + encoding + " in " + file);
+            }
+            return grid;
+        }
+    }
+
+    // encoding is NIBBLES or RUNS; RUNS is much smaller for maps with large areas of one terrain
+    public static void save(TerrainGrid grid, Path file, byte encoding) throws IOException {
+        if (encoding != NIBBLES && encoding != RUNS) throw new IllegalArgumentException("Unknown encoding " + encoding);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocate(1 << 16);
+            out.putInt(MAGIC).putInt(VERSION).putInt(grid.width).putInt(grid.height).put(encoding);
+
+            byte[] cells = grid.raw();
+            if (encoding == NIBBLES) {
+                for (int i = 0; i < cells.length; i += 2) {
+                    if (!out.hasRemaining()) drain(channel, out);
+                    out.put((byte) (cells[i] | (i + 1 < cells.length ? cells[i + 1] << 4 : 0)));
+                }
+            } else {
+                for (int i = 0; i < cells.length; ) {
+                    int run = i;
+                    while (run < cells.length && cells[run] == cells[i]) run++;
+                    if (out.remaining() < 6) drain(channel, out); // type + up to 5 varint bytes
+                    out.put(cells[i]);
+                    for (int length = run - i; ; length >>>= 7) {
+                        if (length < 0x80) {
+                            out.put((byte) length);
+                            break;
+                        }
+                        out.put((byte) (length & 0x7F | 0x80));
+                    }
+                    i = run;
+                }
+            }
+            drain(channel, out);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) channel.write(out);
+        out.clear();
+    }
+
+    private static void readNibbles(Input in, byte[] cells) throws IOException {
+        byte[] packed = new byte[1 << 16];
+        for (int i = 0; i < cells.length; ) {
+            int n = Math.min(packed.length, (cells.length - i + 1) >>> 1);
+            in.get(packed, n);
+            for (int j = 0; j < n; j++, i += 2) {
+                int low = packed[j] & 0x0F, high = (packed[j] >>> 4) & 0x0F;
+                if (low >= TYPES || (high >= TYPES && i + 1 < cells.length)) throw new IOException("Bad terrain value near cell " + i);
+                cells[i] = (byte) low;
+                if (i + 1 < cells.length) cells[i + 1] = (byte) high;
+            }
+        }
+    }
+
+    private static void readRuns(Input in, byte[] cells) throws IOException {
+        for (int i = 0; i < cells.length; ) {
+            int type = in.get();
+            if (type >= TYPES) throw new IOException("Bad terrain value at cell " + i);
+
+            long length = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = in.get();
+                length |= (long) (b & 0x7F) << shift;
+                if (b < 0x80) break;
+                if (shift > 28) throw new IOException("Bad run length at cell " + i);
+            }
+            if (length == 0 || length > cells.length - i) throw new IOException("Bad run length at cell " + i);
+
+            if (type != 0) Arrays.fill(cells, i, i + (int) length, (byte) type); // grid starts out all OPEN
+            i += (int) length;
+        }
+    }
+
+    // Sequential reader over a file mapped one window at a time
+    private static final class Input {
+        private final FileChannel channel;
+        private long next;          // file position of the next window
+        private ByteBuffer window = ByteBuffer.allocate(0);
+
+        Input(FileChannel channel, long position) {
+            this.channel = channel;
+            this.next = position;
+        }
+
+        int get() throws IOException {
+            if (!window.hasRemaining()) advance();
+            return window.get() & 0xFF;
+        }
+
+        void get(byte[] dst, int length) throws IOException {
+            for (int off = 0; off < length; ) {
+                if (!window.hasRemaining()) advance();
+                int n = Math.min(length - off, window.remaining());
+                window.get(dst, off, n);
+                off += n;
+            }
+        }
+
+        private void advance() throws IOException {
+            long left = channel.size() - next;
+            if (left <= 0) throw new IOException("Terrain map is truncated");
+            int size = (int) Math.min(left, WINDOW);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, next, size);
+            next += size;
+        }
+    }
+}
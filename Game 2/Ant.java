@@ -1,76 +1,110 @@
+import java.util.SplittableRandom;
+
 /**
- * A single ant with a very small brain, finite state machine
+ * The ant finite state machine, run as a tight loop over ant indices in an AntStore
  * States:
- *  - SEARCHING_FOOD: random walk to locate food
- *  - RETURNING_HOME: greedy step toward home
+ *  - SEARCHING_FOOD: random walk to locate food (mostly following food trails when World has pheromones)
+ *    or, with World scent enabled, straight along the field to the nearest food (nearest water when SEARCHING_WATER)
+ *  - RETURNING_HOME: follow the world's home flow field to the nearest home
  *  - SEARCHING_WATER: random walk to locate water after drop-off
  *  - DEAD: stepped on poison; no further updates
  */
+public final class Ant {
+    private static final int WANDER_ODDS = 5; // 1 in 5 trail-following steps is random anyway, to find new food
 
-public class Ant {
-    public int x, y;
-    public AntState state = AntState.SEARCHING_FOOD;
-    public boolean carryingFood = false;
+    private Ant() {}
 
-    public Ant(int startX, int startY) {
-        this.x = startX;
-        this.y = startY;
-    }
+    /**
+     * Update ants [from, to) for one tick based on their state and the world
+     * Random moves draw from the given stream; state changes are tallied into
+     * stateDeltas[offset + state ordinal]. Returns how many ants delivered food (births for World to add);
+     * the home cell of each delivery goes to birthCells
+     */
+    static int update(World world, int from, int to, SplittableRandom random, int[] stateDeltas, int offset,
+                      int[] birthCells) {
+        AntStore ants = world.ants;
+        AntCell[][] grid = world.grid;
+        PheromoneField trails = world.pheromones;
+        DistanceField homes = world.homeField;
+        DistanceField food = world.foodField, water = world.waterField;
+        int width = world.width;
+        int births = 0;
 
-    // Update one ant for one tick based on its state and the world
-    public void update(World world) {
-        if (state == AntState.DEAD) return;
+        while (from < to) {
+            int c = from >>> AntStore.CHUNK_BITS;
+            int[] xs = ants.x[c], ys = ants.y[c];
+            byte[] states = ants.state[c];
+            long[] carrying = ants.carrying[c];
+            int base = c << AntStore.CHUNK_BITS;
+            int end = Math.min(to, base + AntStore.CHUNK);
 
-        // Movement policy per state
-        switch (state) {
-            case SEARCHING_FOOD  -> moveRandom(world);
-            case RETURNING_HOME  -> moveTo(world.homeX, world.homeY);
-            case SEARCHING_WATER -> moveRandom(world);
-            case DEAD            -> {}
-        }
+            for (int j = from - base; j < end - base; j++) {
+                byte state = states[j];
+                if (state == AntStore.DEAD) continue;
 
-        // resolve tile effects after the move
-        AntCell current = world.grid[x][y];
+                // Movement policy per state
+                int x = xs[j], y = ys[j], next;
+                if (state == AntStore.RETURNING_HOME) {
+                    // One step along the shared home field; greedily toward the first home if poison cuts every home off
+                    if ((next = homes.next(y * width + x)) >= 0) {
+                        x = next % width;
+                        y = next / width;
+                    } else if (!homes.isSource(y * width + x)) {
+                        if (x < world.homeX) x++; else if (x > world.homeX) x--;
+                        if (y < world.homeY) y++; else if (y > world.homeY) y--;
+                    }
+                } else if (food != null
+                        && (next = (state == AntStore.SEARCHING_FOOD ? food : water).next(y * width + x)) >= 0) {
+                    x = next % width;
+                    y = next / width;
+                } else if (trails != null && state == AntStore.SEARCHING_FOOD && random.nextInt(WANDER_ODDS) != 0
+                        && (next = trails.followFood(x, y, homes)) >= 0) {
+                    x = next % width;
+                    y = next / width;
+                } else {
+                    // random direction walk, clamped to world bounds
+                    x = Math.max(0, Math.min(width - 1, x + random.nextInt(3) - 1));
+                    y = Math.max(0, Math.min(world.height - 1, y + random.nextInt(3) - 1));
+                }
 
-        switch (current.type) {
-            case FOOD -> {
+                // resolve tile effects after the move
+                switch (grid[x][y].type) {
+                    case FOOD -> {
 
-                // Found food only matters if we were looking for food
-                if (state == AntState.SEARCHING_FOOD) {
-                    carryingFood = true;
-                    state = AntState.RETURNING_HOME;
+                        // Found food only matters if we were looking for food
+                        if (state == AntStore.SEARCHING_FOOD) {
+                            carrying[j >>> 6] |= 1L << j;
+                            state = AntStore.RETURNING_HOME;
+                        }
+                    }
+                    case WATER -> {
+
+                        // Drink only matters if we were looking for water
+                        if (state == AntStore.SEARCHING_WATER) {
+                            state = AntStore.SEARCHING_FOOD;
+                        }
+                    }
+                    case POISON -> state = AntStore.DEAD; // rip
+                    case EMPTY  -> {}
                 }
-            }
-            case WATER -> {
 
-                // Drink only matters if we were looking for water
-                if (state == AntState.SEARCHING_WATER) {
-                    state = AntState.SEARCHING_FOOD;
+                // deliver food at home, drop food, become thirsty, spawn new ant
+                if (state == AntStore.RETURNING_HOME && homes.isSource(y * width + x)) {
+                    carrying[j >>> 6] &= ~(1L << j);
+                    state = AntStore.SEARCHING_WATER;
+                    birthCells[births++] = y * width + x; // World spawns them once the whole tick is done
                 }
-            }
-            case POISON -> state = AntState.DEAD; // rip
-            case EMPTY  -> {}
-        }
 
-        // deliver food at home, drop food, become thirsty, spawn new ant
-        if (state == AntState.RETURNING_HOME && x == world.homeX && y == world.homeY) {
-            carryingFood = false;
-            state = AntState.SEARCHING_WATER;
-            world.spawnNewAnt(); // births happen immediately
+                if (state != states[j]) {
+                    stateDeltas[offset + states[j]]--;
+                    stateDeltas[offset + state]++;
+                }
+                xs[j] = x;
+                ys[j] = y;
+                states[j] = state;
+            }
+            from = end;
         }
-    }
-
-    // random direction walk, clamped to world bounds
-    private void moveRandom(World world) {
-        int dx = (int)(Math.random() * 3) - 1;
-        int dy = (int)(Math.random() * 3) - 1;
-        x = Math.max(0, Math.min(world.width  - 1, x + dx));
-        y = Math.max(0, Math.min(world.height - 1, y + dy));
-    }
-
-    // One step greedily toward target
-    private void moveTo(int tx, int ty) {
-        if (x < tx) x++; else if (x > tx) x--;
-        if (y < ty) y++; else if (y > ty) y--;
+        return births;
     }
 }
@@ -0,0 +1,154 @@
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays storage for every ant in the colony
+ * An ant is just an index: its position, state and carrying flag live in parallel primitive arrays.
+ * Storage grows one fixed-size chunk at a time, so nothing is ever copied on growth and an ant costs
+ * about 9 bytes (x, y, state byte, carrying bit) with no per-ant objects.
+ * Population per state is tracked live; dead ants keep their slot until compact() squeezes them out.
+ */
+public class AntStore {
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK = 1 << CHUNK_BITS;  // ants per chunk
+    static final int MASK = CHUNK - 1;
+
+    // AntState ordinals as bytes, the form states are stored in
+    static final byte SEARCHING_FOOD = (byte) AntState.SEARCHING_FOOD.ordinal();
+    static final byte RETURNING_HOME = (byte) AntState.RETURNING_HOME.ordinal();
+    static final byte SEARCHING_WATER = (byte) AntState.SEARCHING_WATER.ordinal();
+    static final byte DEAD = (byte) AntState.DEAD.ordinal();
+    private static final AntState[] STATES = AntState.values();
+
+    // chunk c holds ants [c * CHUNK, (c + 1) * CHUNK)
+    int[][] x = new int[0][];
+    int[][] y = new int[0][];
+    byte[][] state = new byte[0][];
+    long[][] carrying = new long[0][]; // one bit per ant
+    private int size;
+
+    private final long[] counts = new long[STATES.length]; // ants per state currently in the store
+    private long deaths;                                    // every ant that ever died, compacted or not
+
+    public int size() {
+        return size;
+    }
+
+    // Appends a new ant, searching for food and not carrying anything, and returns its index
+    public int add(int antX, int antY) {
+        int i = size;
+        int c = i >>> CHUNK_BITS;
+        if (c == x.length || x[c] == null) addChunk(c);
+
+        x[c][i & MASK] = antX;
+        y[c][i & MASK] = antY;
+        state[c][i & MASK] = SEARCHING_FOOD;
+        carrying[c][(i & MASK) >>> 6] &= ~(1L << i);
+        size++;
+        counts[SEARCHING_FOOD]++;
+        return i;
+    }
+
+    // Ants currently in the given state; for DEAD, every death so far (including compacted corpses)
+    public long count(AntState s) {
+        return s == AntState.DEAD ? deaths : counts[s.ordinal()];
+    }
+
+    public long alive() {
+        return size - counts[DEAD];
+    }
+
+    // Dead ants still occupying a slot
+    public long corpses() {
+        return counts[DEAD];
+    }
+
+    // Applies a batch of state changes counted while stepping ants
+    void adjustCount(int state, int delta) {
+        counts[state] += delta;
+        if (state == DEAD) deaths += delta;
+    }
+
+    /**
+     * Removes dead ants, sliding the survivors down in their original order, and frees trailing chunks
+     * Indices of surviving ants change; returns how many slots were freed
+     */
+    int compact() {
+        int write = 0;
+        for (int read = 0; read < size; read++) {
+            int rc = read >>> CHUNK_BITS, ri = read & MASK;
+            if (state[rc][ri] == DEAD) continue;
+
+            if (write != read) {
+                int wc = write >>> CHUNK_BITS, wi = write & MASK;
+                x[wc][wi] = x[rc][ri];
+                y[wc][wi] = y[rc][ri];
+                state[wc][wi] = state[rc][ri];
+                if (isCarryingFood(read)) carrying[wc][wi >>> 6] |= 1L << wi;
+                else carrying[wc][wi >>> 6] &= ~(1L << wi);
+            }
+            write++;
+        }
+
+        int freed = size - write;
+        size = write;
+        counts[DEAD] = 0;
+        for (int c = chunks(); c < x.length; c++) {
+            x[c] = y[c] = null;
+            state[c] = null;
+            carrying[c] = null;
+        }
+        return freed;
+    }
+
+    // Makes room for exactly n ants, to be filled in through the chunk arrays (snapshot loading); call recount() after
+    void resize(int n) {
+        size = n;
+        for (int c = 0; c < chunks(); c++)
+            if (c == x.length || x[c] == null) addChunk(c);
+    }
+
+    // Rebuilds the per-state counts from the stored states; deaths includes ants compacted away earlier
+    void recount(long deaths) {
+        Arrays.fill(counts, 0);
+        for (int c = 0; c < chunks(); c++) {
+            int n = Math.min(CHUNK, size - (c << CHUNK_BITS));
+            for (int j = 0; j < n; j++) counts[state[c][j]]++;
+        }
+        this.deaths = deaths;
+    }
+
+    public int x(int i) {
+        return x[i >>> CHUNK_BITS][i & MASK];
+    }
+
+    public int y(int i) {
+        return y[i >>> CHUNK_BITS][i & MASK];
+    }
+
+    public AntState state(int i) {
+        return STATES[state[i >>> CHUNK_BITS][i & MASK]];
+    }
+
+    public boolean isCarryingFood(int i) {
+        return (carrying[i >>> CHUNK_BITS][(i & MASK) >>> 6] & (1L << i)) != 0;
+    }
+
+    // Number of chunks holding at least one ant
+    int chunks() {
+        return (size + MASK) >>> CHUNK_BITS;
+    }
+
+    private void addChunk(int c) {
+        if (c == x.length) {
+            int n = Math.max(4, x.length * 2);
+            x = Arrays.copyOf(x, n);
+            y = Arrays.copyOf(y, n);
+            state = Arrays.copyOf(state, n);
+            carrying = Arrays.copyOf(carrying, n);
+        }
+        x[c] = new int[CHUNK];
+        y[c] = new int[CHUNK];
+        state[c] = new byte[CHUNK];
+        carrying[c] = new long[CHUNK / 64];
+    }
+}
@@ -0,0 +1,243 @@
+import java.util.Arrays;
+
+/**
+ * Steps from every cell to the nearest of a set of source cells (homes, food, water...), moving like an ant:
+ * one step to any of the 8 neighbors, never onto a blocked (poison) cell
+ * Every cell also stores the direction of its best next step, so following the field costs one array lookup.
+ * Adding or removing a source and blocking or unblocking a cell repair only the cells whose distance changes:
+ * lowering spreads out from the change, raising first collects the cells whose every shortest route ran
+ * through it, then refills them from their unaffected neighbors
+ */
+public class DistanceField {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final int[] DX = { -1, 1, -1, 1, 0, 0, -1, 1 }; // diagonals first, so open ground is crossed
+    private static final int[] DY = { -1, -1, 1, 1, -1, 1, 0, 0 }; // the way the old greedy step toward home did
+    private static final byte NONE = -1;
+
+    public final int width, height;
+    private final int[] distance;
+    private final byte[] flow;        // index into DX/DY of the best next step, NONE at sources and unreachable cells
+    private final boolean[] source;
+    private final boolean[] blocked;
+
+    private int[] work = new int[64];     // cells collected while raising distances
+    private int[] queue = new int[64];    // cells lowered by the current update, in BFS order
+    private long[] seeds = new long[64];  // (distance << 32 | cell) to restart the BFS from after a raise
+
+    public DistanceField(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.distance = new int[width * height];
+        this.flow = new byte[width * height];
+        this.source = new boolean[width * height];
+        this.blocked = new boolean[width * height];
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(flow, NONE);
+    }
+
+    public int distance(int x, int y) {
+        return distance[y * width + x];
+    }
+
+    int distance(int cell) {
+        return distance[cell];
+    }
+
+    // Neighbor to step to from cell to get closer to a source, -1 at a source or if none is reachable
+    int next(int cell) {
+        byte dir = flow[cell];
+        return dir == NONE ? -1 : cell + DY[dir] * width + DX[dir];
+    }
+
+    public boolean isSource(int cell) {
+        return source[cell];
+    }
+
+    // Sets up sources and blocked cells before the first rebuild(), without updating anything
+    void initSource(int cell) {
+        source[cell] = true;
+    }
+
+    void initBlocked(int cell) {
+        blocked[cell] = true;
+    }
+
+    // Full multi-source BFS
+    void rebuild() {
+        Arrays.fill(distance, UNREACHABLE);
+        int tail = 0;
+        for (int cell = 0; cell < distance.length; cell++) {
+            if (!source[cell] || blocked[cell]) continue;
+            distance[cell] = 0;
+            queue = ensure(queue, tail);
+            queue[tail++] = cell;
+        }
+        spread(tail, 0);
+        for (int cell = 0; cell < distance.length; cell++) updateFlow(cell);
+    }
+
+    void addSource(int cell) {
+        if (source[cell]) return;
+        source[cell] = true;
+        if (!blocked[cell]) lower(cell, 0);
+    }
+
+    void removeSource(int cell) {
+        if (!source[cell]) return;
+        source[cell] = false;
+        if (!blocked[cell]) raise(cell);
+    }
+
+    void setBlocked(int cell, boolean isBlocked) {
+        if (blocked[cell] == isBlocked) return;
+        blocked[cell] = isBlocked;
+        if (isBlocked) {
+            raise(cell);
+            return;
+        }
+
+        int best = source[cell] ? 0 : bestNeighbor(cell);
+        if (best != UNREACHABLE) lower(cell, best);
+    }
+
+    // cell can now be reached in d steps; spread the improvement
+    private void lower(int cell, int d) {
+        distance[cell] = d;
+        queue[0] = cell;
+        int tail = spread(1, 0);
+        refreshFlow(queue, tail);
+    }
+
+    // cell stops being a source or becomes blocked: recompute everything whose shortest routes all used it
+    private void raise(int root) {
+        int old = distance[root];
+        if (old == UNREACHABLE) return; // nothing could have relied on it
+
+        // collect level by level: a cell is affected when no unaffected neighbor one step closer is left;
+        // affected cells hold -1 - distance meanwhile, so they never count as support
+        int count = 0;
+        work[count++] = root;
+        distance[root] = -1 - old;
+        for (int head = 0; head < count; head++) {
+            int cell = work[head];
+            int d = -1 - distance[cell];
+            int x = cell % width, y = cell / width;
+            for (int k = 0; k < 8; k++) {
+                int nx = x + DX[k], ny = y + DY[k];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) continue;
+                int n = ny * width + nx;
+                if (distance[n] != d + 1 || supported(n, d)) continue;
+                work = ensure(work, count);
+                work[count++] = n;
+                distance[n] = -1 - (d + 1);
+            }
+        }
+
+        // refill from the unaffected border, closest seeds first
+        for (int i = 0; i < count; i++) distance[work[i]] = UNREACHABLE;
+        int seedCount = 0;
+        for (int i = 0; i < count; i++) {
+            int cell = work[i];
+            if (blocked[cell]) continue;
+            int best = source[cell] ? 0 : bestNeighbor(cell);
+            if (best == UNREACHABLE) continue;
+            distance[cell] = best;
+            seeds = ensure(seeds, seedCount);
+            seeds[seedCount++] = (long) best << 32 | cell;
+        }
+        Arrays.sort(seeds, 0, seedCount);
+
+        int tail = spread(0, seedCount);
+        refreshFlow(work, count);
+        refreshFlow(queue, tail);
+    }
+
+    // True if a neighbor of cell that is d steps from a source (and not affected) still leads there
+    private boolean supported(int cell, int d) {
+        int x = cell % width, y = cell / width;
+        for (int k = 0; k < 8; k++) {
+            int nx = x + DX[k], ny = y + DY[k];
+            if (nx < 0 || ny < 0 || nx >= width || ny >= height) continue;
+            if (distance[ny * width + nx] == d) return true;
+        }
+        return false;
+    }
+
+    // 1 + the smallest neighbor distance, UNREACHABLE if no neighbor is reachable
+    private int bestNeighbor(int cell) {
+        int best = UNREACHABLE;
+        int x = cell % width, y = cell / width;
+        for (int k = 0; k < 8; k++) {
+            int nx = x + DX[k], ny = y + DY[k];
+            if (nx < 0 || ny < 0 || nx >= width || ny >= height) continue;
+            int d = distance[ny * width + nx];
+            if (d >= 0 && d < best - 1) best = d + 1;
+        }
+        return best;
+    }
+
+    /**
+     * BFS from queue[0, tail) merged with seeds[0, seedCount) in distance order; every cell whose distance
+     * drops is appended to the queue. Returns the final queue length
+     */
+    private int spread(int tail, int seedCount) {
+        int head = 0, s = 0;
+        while (head < tail || s < seedCount) {
+            int cell;
+            if (s < seedCount && (head == tail || (int) (seeds[s] >>> 32) <= distance[queue[head]])) {
+                cell = (int) seeds[s++];
+            } else {
+                cell = queue[head++];
+            }
+
+            int d = distance[cell] + 1;
+            int x = cell % width, y = cell / width;
+            for (int k = 0; k < 8; k++) {
+                int nx = x + DX[k], ny = y + DY[k];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) continue;
+                int n = ny * width + nx;
+                if (blocked[n] || distance[n] <= d) continue;
+                distance[n] = d;
+                queue = ensure(queue, tail);
+                queue[tail++] = n;
+            }
+        }
+        return tail;
+    }
+
+    // Directions of the changed cells and their neighbors may have changed
+    private void refreshFlow(int[] cells, int count) {
+        for (int i = 0; i < count; i++) {
+            int x = cells[i] % width, y = cells[i] / width;
+            for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++)
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++)
+                    updateFlow(ny * width + nx);
+        }
+    }
+
+    private void updateFlow(int cell) {
+        int best = distance[cell];
+        byte dir = NONE;
+        if (best != 0 && best != UNREACHABLE) {
+            int x = cell % width, y = cell / width;
+            for (int k = 0; k < 8; k++) {
+                int nx = x + DX[k], ny = y + DY[k];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) continue;
+                int d = distance[ny * width + nx];
+                if (d < best) {
+                    best = d;
+                    dir = (byte) k;
+                }
+            }
+        }
+        flow[cell] = dir;
+    }
+
+    private static int[] ensure(int[] array, int size) {
+        return size < array.length ? array : Arrays.copyOf(array, array.length * 2);
+    }
+
+    private static long[] ensure(long[] array, int size) {
+        return size < array.length ? array : Arrays.copyOf(array, array.length * 2);
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Immutable picture of a World after one tick, built on the simulation thread and painted by GamePanel
+ * Holds only what the panel draws: the terrain (shared between snapshots until a tile changes), the homes,
+ * and what every cell shows, either the last ant there or the log2 ant count when the colony is dense
+ */
+public final class FrameSnapshot {
+    public static final int HEAT_LEVELS = 16; // 1..15, one per power of two of the ant count
+
+    public final int width, height;
+    public final long tick;
+    public final long alive;
+    public final int terrainVersion;
+    public final boolean heatmap;  // looks are heat levels instead of ant states
+
+    final byte[] terrain;          // CellType ordinal per cell (y * width + x), never written after capture
+    final int[] homes;
+    final byte[] looks;            // per cell: 0 = empty, else ant state + 1 or heat level
+
+    private FrameSnapshot(World world, byte[] terrain, int[] homes, byte[] looks, boolean heatmap) {
+        this.width = world.width;
+        this.height = world.height;
+        this.tick = world.tick;
+        this.alive = world.ants.alive();
+        this.terrainVersion = world.terrainVersion();
+        this.terrain = terrain;
+        this.homes = homes;
+        this.looks = looks;
+        this.heatmap = heatmap;
+    }
+
+    /**
+     * Captures the world as it is now; must run on the thread that updates it.
+     * Terrain and homes are reused from previous (may be null) when no tile has changed since
+     */
+    static FrameSnapshot capture(World world, FrameSnapshot previous, double heatmapDensity) {
+        byte[] terrain;
+        int[] homes;
+        if (previous != null && previous.terrainVersion == world.terrainVersion()) {
+            terrain = previous.terrain;
+            homes = previous.homes;
+        } else {
+            terrain = new byte[world.width * world.height];
+            for (int x = 0; x < world.width; x++)
+                for (int y = 0; y < world.height; y++)
+                    terrain[y * world.width + x] = (byte) world.grid[x][y].type.ordinal();
+            homes = world.homes();
+        }
+
+        AntStore ants = world.ants;
+        byte[] looks = new byte[world.width * world.height];
+        boolean heatmap = ants.alive() > heatmapDensity * looks.length;
+        boolean indexed = heatmap && world.occupancy != null; // the index already counts the living ants per cell
+        int[] counts = indexed ? world.occupancy.counts() : heatmap ? new int[looks.length] : null;
+
+        // one pass over the ant store
+        for (int c = 0; c < ants.chunks() && !indexed; c++) {
+            int[] xs = ants.x[c], ys = ants.y[c];
+            byte[] states = ants.state[c];
+            int n = Math.min(AntStore.CHUNK, ants.size() - (c << AntStore.CHUNK_BITS));
+
+            if (heatmap) {
+                for (int j = 0; j < n; j++)
+                    if (states[j] != AntStore.DEAD) counts[ys[j] * world.width + xs[j]]++; // as the index counts
+            } else {
+                for (int j = 0; j < n; j++) looks[ys[j] * world.width + xs[j]] = (byte) (states[j] + 1); // last ant drawn wins
+            }
+        }
+
+        // counts -> log2 heat level, so the colors stay meaningful at any population
+        if (heatmap) {
+            for (int cell = 0; cell < looks.length; cell++)
+                if (counts[cell] > 0) looks[cell] = (byte) Math.min(HEAT_LEVELS - 1, 32 - Integer.numberOfLeadingZeros(counts[cell]));
+        }
+        return new FrameSnapshot(world, terrain, homes, looks, heatmap);
+    }
+}
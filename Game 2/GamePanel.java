@@ -1,36 +1,60 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 
 /**
  * Swing panel that renders the grid, home, and ants
  * Keeps rendering logic separate from simulation state
  * Also detects when all ants are dead and triggers a game-over callback
+ *
+ * The panel never touches the World: a Swing timer picks up the latest FrameSnapshot published by the
+ * Simulation thread at its own frame rate, so ticks and frames run at independent speeds and a slow tick
+ * can't freeze the window. Terrain and home are drawn once into a cached image, rebuilt only when a tile
+ * changes, and only the cells whose look differs from the snapshot on screen are repainted.
  */
 
 public class GamePanel extends JPanel {
-    private final World world;
+    private final Simulation simulation;
+    private final int width, height;
     private final int cellSize = 40; // pixels per grid cell
 
+    // shared paint objects so frames don't allocate
+    private static final Color HOME_BLUE = new Color(0, 90, 255); // deep blue
+    private static final BasicStroke HOME_STROKE = new BasicStroke(2);
+    private static final Color[] ANT_COLORS = { Color.ORANGE, HOME_BLUE, Color.MAGENTA, Color.BLACK }; // by state
+    private static final Color[] HEAT = new Color[FrameSnapshot.HEAT_LEVELS]; // translucent yellow -> red, one per power of two
+    static {
+        for (int i = 1; i < HEAT.length; i++) {
+            float t = (i - 1) / (float) (HEAT.length - 2);
+            HEAT[i] = new Color(255, (int) (220 * (1 - t)), 0, 90 + (int) (140 * t));
+        }
+    }
+
+    private final Timer frames;
+    private FrameSnapshot shown;     // snapshot on screen; only touched on the EDT
+    private BufferedImage terrain;   // cached terrain + home
+    private int terrainVersion = -1; // FrameSnapshot.terrainVersion the image was drawn for
+
     // game over callback provided by Main
     private Runnable onGameOver;
+    private boolean over;
 
-    public GamePanel(int width, int height, int startingAnts) {
-        this.world = new World(width, height, startingAnts);
+    public GamePanel(Simulation simulation, double framesPerSecond) {
+        this.simulation = simulation;
+        this.width = simulation.world.width;
+        this.height = simulation.world.height;
+        this.shown = simulation.latest();
+        this.frames = new Timer((int) Math.max(1, Math.round(1000 / framesPerSecond)), e -> nextFrame());
+        setPreferredSize(new Dimension(width * cellSize, height * cellSize));
     }
 
-    // Called by Main's timer each tick to advance the sim and detect end state
-    public void updateSimulation() {
-        world.update();
+    // Starts and stops picking up frames; the simulation itself is started separately
+    public void start() {
+        frames.start();
+    }
 
-        // all ants are dead
-        boolean allDead = true;
-        for (Ant ant : world.ants) {
-            if (ant.state != AntState.DEAD) {
-                allDead = false;
-                break;
-            }
-        }
-        if (allDead && onGameOver != null) onGameOver.run();
+    public void stop() {
+        frames.stop();
     }
 
     // allows Main to attach a callback that runs when the game ends
@@ -38,15 +62,98 @@ public class GamePanel extends JPanel {
         this.onGameOver = r;
     }
 
+    // Ants per cell (on average) above which the panel draws a count heatmap instead of individual ants
+    public void setHeatmapDensity(double antsPerCell) {
+        simulation.setHeatmapDensity(antsPerCell);
+    }
+
+    // Called by the frame timer: shows the newest snapshot, repainting the bounding box of the cells that changed
+    private void nextFrame() {
+        FrameSnapshot next = simulation.latest();
+        if (next != shown) {
+            FrameSnapshot previous = shown;
+            shown = next;
+            if (next.terrainVersion != previous.terrainVersion || next.heatmap != previous.heatmap) {
+                repaint();
+            } else {
+                repaintChanges(previous, next);
+            }
+        }
+
+        // all ants are dead (count taken with the snapshot, no scan)
+        if (next.alive == 0 && !over) {
+            over = true;
+            frames.stop();
+            if (onGameOver != null) onGameOver.run();
+        }
+    }
+
+    private void repaintChanges(FrameSnapshot previous, FrameSnapshot next) {
+        int minX = width, minY = height, maxX = -1, maxY = -1;
+        for (int y = 0, cell = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, cell++) {
+                if (next.looks[cell] == previous.looks[cell]) continue;
+                if (x < minX) minX = x;
+                if (x > maxX) maxX = x;
+                if (y < minY) minY = y;
+                if (y > maxY) maxY = y;
+            }
+        }
+
+        if (maxX >= 0)
+            repaint(minX * cellSize, minY * cellSize, (maxX - minX + 1) * cellSize + 1, (maxY - minY + 1) * cellSize + 1);
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        FrameSnapshot frame = shown;
+
+        if (terrain == null || frame.terrainVersion != terrainVersion) {
+            terrainVersion = frame.terrainVersion;
+            terrain = renderTerrain(frame);
+        }
+        g.drawImage(terrain, 0, 0, null);
+
+        // draw ants, only for cells inside the area being repainted
+        Rectangle clip = g.getClipBounds();
+        int x0 = 0, y0 = 0, x1 = width - 1, y1 = height - 1;
+        if (clip != null) {
+            x0 = Math.max(x0, clip.x / cellSize);
+            y0 = Math.max(y0, clip.y / cellSize);
+            x1 = Math.min(x1, (clip.x + clip.width - 1) / cellSize);
+            y1 = Math.min(y1, (clip.y + clip.height - 1) / cellSize);
+        }
+
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int look = frame.looks[y * width + x];
+                if (look == 0) continue;
+
+                if (frame.heatmap) {
+                    g.setColor(HEAT[look]);
+                    g.fillRect(x * cellSize + 1, y * cellSize + 1, cellSize - 1, cellSize - 1);
+                } else {
+                    // slight inset circle so it looks centered inside the tile
+                    g.setColor(ANT_COLORS[look - 1]);
+                    g.fillOval(x * cellSize + 10, y * cellSize + 10, 20, 20);
+                }
+            }
+        }
+    }
+
+    // Terrain grid and home, drawn once per terrain version
+    private BufferedImage renderTerrain(FrameSnapshot frame) {
+        BufferedImage image = new BufferedImage(width * cellSize + 1, height * cellSize + 1, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(getBackground());
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
 
         // draw terrain grid
-        AntCell[][] grid = world.grid;
-        for (int x = 0; x < grid.length; x++) {
-            for (int y = 0; y < grid[0].length; y++) {
-                switch (grid[x][y].type) {
+        CellType[] types = CellType.values();
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                switch (types[frame.terrain[y * width + x]]) {
                     case EMPTY -> g.setColor(Color.WHITE);
                     case FOOD  -> g.setColor(Color.GREEN);
                     case WATER -> g.setColor(Color.CYAN);
@@ -58,32 +165,24 @@ public class GamePanel extends JPanel {
             }
         }
 
-        // draw the home, blue outline wasn't good enough so it's filled deep blue and white "H"
-        int hx = world.homeX * cellSize;
-        int hy = world.homeY * cellSize;
+        // draw the homes, blue outline wasn't good enough so they're filled deep blue and white "H"
+        g.setFont(getFont().deriveFont(Font.BOLD, 18f));
+        g.setStroke(HOME_STROKE);
+        for (int home : frame.homes) {
+            int hx = home % width * cellSize;
+            int hy = home / width * cellSize;
 
-        g.setColor(new Color(0, 90, 255)); // deep blue
-        g.fillRect(hx, hy, cellSize, cellSize);
+            g.setColor(HOME_BLUE);
+            g.fillRect(hx, hy, cellSize, cellSize);
 
-        g.setColor(Color.WHITE); // white H
-        g.setFont(g.getFont().deriveFont(Font.BOLD, 18f));
-        g.drawString("H", hx + cellSize/2 - 6, hy + cellSize/2 + 7);
+            g.setColor(Color.WHITE); // white H
+            g.drawString("H", hx + cellSize/2 - 6, hy + cellSize/2 + 7);
 
-        g.setColor(Color.BLACK); // bold outline
-        ((Graphics2D) g).setStroke(new BasicStroke(2));
-        g.drawRect(hx, hy, cellSize, cellSize);
-
-        // draw ants
-        for (Ant ant : world.ants) {
-            switch (ant.state) {
-                case SEARCHING_FOOD  -> g.setColor(Color.ORANGE);
-                case RETURNING_HOME  -> g.setColor(new Color(0, 90, 255)); // deep blue
-                case SEARCHING_WATER -> g.setColor(Color.MAGENTA);
-                case DEAD            -> g.setColor(Color.BLACK);
-            }
-
-            // slight inset circle so it looks centered inside the tile
-            g.fillOval(ant.x * cellSize + 10, ant.y * cellSize + 10, 20, 20);
+            g.setColor(Color.BLACK); // bold outline
+            g.drawRect(hx, hy, cellSize, cellSize);
         }
+
+        g.dispose();
+        return image;
     }
 }
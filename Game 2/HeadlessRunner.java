@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Runs the colony without a window, stepping World.update as fast as the CPU allows
+ * Stops after the tick limit or when every ant is dead, then prints throughput and the final population
+ * A run can be checkpointed to a snapshot file (--save, every --checkpoint ticks and at the end) and picked
+ * up again later with --resume, which replaces the map options
+ * --metrics prints a CSV row of SimMetrics every given number of milliseconds and publishes them over JMX
+ *
+ * Usage: java HeadlessRunner [--width 16] [--height 16] [--ants 5] [--food 10] [--water 6] [--poison 5]
+ *                            [--seed 42] [--ticks 100000] [--threads 1] [--pheromones 0|1] [--scent 0|1]
+ *                            [--homes 1] [--resume file] [--save file] [--checkpoint ticks] [--metrics ms]
+ */
+public class HeadlessRunner {
+    private static final Set<String> OPTIONS = Set.of("width", "height", "ants", "food", "water", "poison", "seed",
+            "ticks", "threads", "pheromones", "scent", "homes", "resume", "save", "checkpoint", "metrics");
+    private static final String USAGE = "Usage: java HeadlessRunner [--width 16] [--height 16] [--ants 5] [--food 10] [--water 6]"
+            + " [--poison 5] [--seed 42] [--ticks 100000] [--threads 1] [--pheromones 0|1] [--scent 0|1] [--homes 1]"
+            + " [--resume file] [--save file] [--checkpoint ticks] [--metrics ms]";
+
+    public static void main(String[] args) throws IOException {
+        Options options = new Options(args, OPTIONS, USAGE);
+        int width = (int) options.number("width", 16, 1, Options.MAX_SIDE);
+        int height = (int) options.number("height", 16, 1, Options.MAX_SIDE);
+        int startingAnts = (int) options.number("ants", 5, 0, Integer.MAX_VALUE);
+        int food = (int) options.number("food", 10, 0, Integer.MAX_VALUE);
+        int water = (int) options.number("water", 6, 0, Integer.MAX_VALUE);
+        int poison = (int) options.number("poison", 5, 0, Integer.MAX_VALUE);
+        long seed = options.number("seed", System.nanoTime());
+        long maxTicks = options.number("ticks", 100_000, 0, Long.MAX_VALUE);
+        int threads = (int) options.number("threads", 1, 1, Short.MAX_VALUE);
+        boolean pheromones = options.number("pheromones", 0, 0, 1) != 0;
+        boolean scent = options.number("scent", 0, 0, 1) != 0;
+        int homes = (int) options.number("homes", 1, 1, Integer.MAX_VALUE);
+        String resume = options.get("resume");
+        Path save = options.get("save") != null ? Paths.get(options.get("save")) : null;
+        long checkpoint = options.number("checkpoint", 0, 0, Long.MAX_VALUE);
+        long metricsPeriod = options.number("metrics", 0, 0, Long.MAX_VALUE);
+        if (resume == null && (long) food + water + poison > (long) width * height - 1)
+            options.usage("No room for " + ((long) food + water + poison) + " food, water and poison tiles on a " + width + "x" + height + " map");
+
+        World world;
+        if (resume != null) {
+            long loadStart = System.nanoTime();
+            world = WorldSnapshot.load(Paths.get(resume));
+            System.out.printf("Resumed %s at tick %d with %d ants in %.3f s%n",
+                    resume, world.tick, world.ants.size(), (System.nanoTime() - loadStart) / 1e9);
+        } else {
+            world = new World(width, height, startingAnts, food, water, poison, seed);
+
+            // extra homes on empty tiles picked from the seed; the first home is on one of them
+            int empty = 0;
+            for (int x = 0; x < width; x++)
+                for (int y = 0; y < height; y++)
+                    if (world.grid[x][y].type == CellType.EMPTY) empty++;
+            if (homes > empty) options.usage("Only " + empty + " empty tiles for --homes " + homes);
+
+            Random homeRandom = new Random(seed);
+            for (int placed = world.homes().length; placed < homes; ) {
+                int x = homeRandom.nextInt(width), y = homeRandom.nextInt(height);
+                if (world.grid[x][y].type == CellType.EMPTY && !world.isHome(x, y)) {
+                    world.addHome(x, y);
+                    placed++;
+                }
+            }
+        }
+        world.setThreads(threads);
+        if (pheromones) world.enablePheromones();
+        if (scent) world.enableScent();
+        if (metricsPeriod > 0) {
+            SimMetrics metrics = world.enableMetrics();
+            metrics.register("AntColony:type=Simulation");
+            metrics.startDump(System.out, metricsPeriod, true);
+        }
+
+        long ticks = 0, antUpdates = 0;
+        long startTime = System.nanoTime();
+        while (ticks < maxTicks && world.ants.alive() > 0) {
+            antUpdates += world.ants.alive();
+            world.update();
+            ticks++;
+            if (save != null && checkpoint > 0 && ticks % checkpoint == 0) checkpoint(world, save);
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        if (world.metrics != null) world.metrics.unregister();
+
+        System.out.printf("seed %d, %dx%d map, %d home(s), %d thread(s)%s%s%n",
+                world.seed, world.width, world.height, world.homes().length, threads,
+                world.pheromones != null ? ", pheromones" : "", world.foodField != null ? ", scent" : "");
+        System.out.printf("%d ticks in %.3f s: %.0f ticks/sec, %.0f ant-updates/sec%n",
+                ticks, seconds, ticks / seconds, antUpdates / seconds);
+        world.setThreads(1);
+        System.out.printf("%s at tick %d: %d ants alive, %d born%n",
+                world.ants.alive() == 0 ? "Colony perished" : "Colony alive", world.tick, world.ants.alive(), world.births);
+        for (AntState state : AntState.values())
+            System.out.printf("  %-16s %d%n", state, world.ants.count(state));
+        if (save != null) checkpoint(world, save);
+    }
+
+    // Writes next to the target and renames, so a crash mid-write never leaves a broken checkpoint behind
+    private static void checkpoint(World world, Path save) throws IOException {
+        long start = System.nanoTime();
+        Path partial = save.resolveSibling(save.getFileName() + ".tmp");
+        WorldSnapshot.save(world, partial);
+        Files.move(partial, save, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("Saved tick %d (%d ants) to %s in %.3f s%n",
+                world.tick, world.ants.size(), save, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -1,16 +1,19 @@
 import javax.swing.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 
 /**
  * Entry point for the FSM Ant Simulation
  * Prompts the user for the starting number of ants,
- * builds the window, and drives the simulation with a Swing Timer.
+ * builds the window, and runs the simulation on its own thread while the panel draws its snapshots.
  * Also wires a Game Over callback to stop when all ants are dead
+ *
+ * Usage: java Main [ticks per second, default 3.3] [frames per second, default 60]
  */
 
 public class Main {
     public static void main(String[] args) {
+        if (args.length > 2) usage("Too many arguments");
+        double ticksPerSecond = rate(args, 0, "ticks per second", 1000 / 300.0); // the old 300 ms timer
+        double framesPerSecond = rate(args, 1, "frames per second", 60);
 
         // ask user for starting ants
         int startingAnts = 5; // default if user cancels or fat fingers, I did
@@ -36,23 +39,15 @@ public class Main {
         }
 
         JFrame frame = new JFrame("Ant Simulation - FSM");
-        GamePanel panel = new GamePanel(16, 16, startingAnts); // width, height of ants
+        Simulation simulation = new Simulation(new World(16, 16, startingAnts), ticksPerSecond); // width, height of ants
+        GamePanel panel = new GamePanel(simulation, framesPerSecond);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(700, 700);
         frame.add(panel);
         frame.setVisible(true);
 
-        // game loop
-        Timer timer = new Timer(300, new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                panel.updateSimulation();
-                panel.repaint();
-            }
-        });
-
-        // Game Over: stop timer, notify user, close window
+        // Game Over: notify user, close window (the simulation thread has already stopped by itself)
         panel.setOnGameOver(() -> {
-            timer.stop();
             JOptionPane.showMessageDialog(frame,
                     "All ants are dead! The colony has perished!",
                     "Game Over",
@@ -60,6 +55,26 @@ public class Main {
             frame.dispose();
         });
 
-        timer.start();
+        panel.start();
+        simulation.start();
+    }
+
+    // args[index] as a positive rate, or defaultValue if it isn't given
+    private static double rate(String[] args, int index, String name, double defaultValue) {
+        if (args.length <= index) return defaultValue;
+        try {
+            double value = Double.parseDouble(args[index]);
+            if (value > 0 && !Double.isInfinite(value)) return value;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        usage("Not a positive number of " + name + ": " + args[index]);
+        return defaultValue;
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: java Main [ticks per second, default 3.3] [frames per second, default 60]");
+        System.exit(1);
     }
 }
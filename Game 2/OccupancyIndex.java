@@ -0,0 +1,179 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Which living ants stand on each cell: a count per cell plus an intrusive doubly linked list of ant ids
+ * (AntStore indices) threaded through per-ant next/prev arrays, so moving one ant is O(1) and nothing is
+ * allocated per ant. World syncs it after every tick with one serial pass that finds the ants whose cell
+ * changed (moved, born or died) and relinks only those; when more than a quarter of them changed, or the
+ * store was compacted and ids shifted, it is cheaper to rebuild all lists in one bucketing pass instead
+ */
+public class OccupancyIndex {
+    public static final int NONE = -1;
+    private static final int REBUILD_SHARE = 4; // rebuild once more than 1 in 4 ants changed cell
+    private static final int[] EMPTY = new int[0];
+
+    public final int width, height;
+    private final int[] count;            // living ants per cell (y * width + x)
+    private final int[] head;             // first ant id on the cell, NONE if empty
+    private int[] next = EMPTY, prev = EMPTY; // neighbors of an ant in its cell's list
+    private int[] cellOf = EMPTY;         // cell an ant is linked into, NONE if dead or not indexed yet
+    private int indexed;                  // ants [0, indexed) are reflected in the lists
+    private int[] changedIds = new int[64], changedCells = new int[64];
+
+    public OccupancyIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.count = new int[width * height];
+        this.head = new int[width * height];
+        Arrays.fill(head, NONE);
+    }
+
+    public int count(int x, int y) {
+        return count[y * width + x];
+    }
+
+    // Per-cell counts, for renderers; not to be modified
+    int[] counts() {
+        return count;
+    }
+
+    // First ant on the cell, NONE if empty; continue with next(id). Lists are in no particular order
+    public int first(int x, int y) {
+        return head[y * width + x];
+    }
+
+    public int next(int id) {
+        return next[id];
+    }
+
+    public void forEach(int x, int y, IntConsumer action) {
+        for (int id = head[y * width + x]; id != NONE; id = next[id]) action.accept(id);
+    }
+
+    /**
+     * Writes the ids of the ants within radius cells (Chebyshev distance, clipped to the map) of (x, y) into out
+     * and returns how many there are; only the first out.length are written. Empty cells are skipped by their
+     * count, so the cost is the cells in the square plus the ants found
+     */
+    public int neighbors(int x, int y, int radius, int[] out) {
+        int found = 0;
+        for (int ny = Math.max(0, y - radius); ny <= Math.min(height - 1, y + radius); ny++) {
+            for (int nx = Math.max(0, x - radius); nx <= Math.min(width - 1, x + radius); nx++) {
+                int cell = ny * width + nx;
+                if (count[cell] == 0) continue;
+                for (int id = head[cell]; id != NONE; id = next[id]) {
+                    if (found < out.length) out[found] = id;
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    // Number of ants within radius cells of (x, y), from the counts alone
+    public int countAround(int x, int y, int radius) {
+        int total = 0;
+        for (int ny = Math.max(0, y - radius); ny <= Math.min(height - 1, y + radius); ny++)
+            for (int nx = Math.max(0, x - radius); nx <= Math.min(width - 1, x + radius); nx++)
+                total += count[ny * width + nx];
+        return total;
+    }
+
+    /**
+     * Brings the index in line with the store after a tick; renumbered means ids changed (AntStore.compact),
+     * which always rebuilds
+     */
+    void sync(AntStore ants, boolean renumbered) {
+        if (renumbered || indexed > ants.size()) {
+            rebuild(ants);
+            return;
+        }
+        grow(ants.size());
+
+        // collect the ants whose cell changed, giving up as soon as a rebuild is cheaper
+        int limit = Math.max(64, ants.size() / REBUILD_SHARE);
+        int changed = 0;
+        for (int c = 0; c < ants.chunks(); c++) {
+            int[] xs = ants.x[c], ys = ants.y[c];
+            byte[] states = ants.state[c];
+            int base = c << AntStore.CHUNK_BITS;
+            int n = Math.min(AntStore.CHUNK, ants.size() - base);
+
+            for (int j = 0; j < n; j++) {
+                int cell = states[j] == AntStore.DEAD ? NONE : ys[j] * width + xs[j];
+                if (cell == cellOf[base + j]) continue;
+                if (changed == limit) {
+                    rebuild(ants);
+                    return;
+                }
+                if (changed == changedIds.length) {
+                    changedIds = Arrays.copyOf(changedIds, changed * 2);
+                    changedCells = Arrays.copyOf(changedCells, changed * 2);
+                }
+                changedIds[changed] = base + j;
+                changedCells[changed++] = cell;
+            }
+        }
+
+        for (int i = 0; i < changed; i++) {
+            int id = changedIds[i];
+            if (cellOf[id] != NONE) unlink(id);
+            if (changedCells[i] != NONE) link(id, changedCells[i]);
+        }
+        indexed = ants.size();
+    }
+
+    // An ant just appended to the store
+    void add(int id, int cell) {
+        grow(id + 1);
+        link(id, cell);
+        indexed = id + 1;
+    }
+
+    // One pass over every ant, last id first, so each cell's list comes out in ascending id order
+    void rebuild(AntStore ants) {
+        Arrays.fill(count, 0);
+        Arrays.fill(head, NONE);
+        grow(ants.size());
+        Arrays.fill(cellOf, 0, ants.size(), NONE);
+
+        for (int c = ants.chunks() - 1; c >= 0; c--) {
+            int[] xs = ants.x[c], ys = ants.y[c];
+            byte[] states = ants.state[c];
+            int base = c << AntStore.CHUNK_BITS;
+            for (int j = Math.min(AntStore.CHUNK, ants.size() - base) - 1; j >= 0; j--)
+                if (states[j] != AntStore.DEAD) link(base + j, ys[j] * width + xs[j]);
+        }
+        indexed = ants.size();
+    }
+
+    private void link(int id, int cell) {
+        int first = head[cell];
+        prev[id] = NONE;
+        next[id] = first;
+        if (first != NONE) prev[first] = id;
+        head[cell] = id;
+        count[cell]++;
+        cellOf[id] = cell;
+    }
+
+    private void unlink(int id) {
+        int cell = cellOf[id];
+        if (prev[id] != NONE) next[prev[id]] = next[id]; else head[cell] = next[id];
+        if (next[id] != NONE) prev[next[id]] = prev[id];
+        count[cell]--;
+        cellOf[id] = NONE;
+    }
+
+    // Room for ids below size; ids not indexed yet start unlinked
+    private void grow(int size) {
+        if (cellOf.length < size) {
+            int capacity = Math.max(size, cellOf.length * 2);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            cellOf = Arrays.copyOf(cellOf, capacity);
+        }
+        if (indexed < size) Arrays.fill(cellOf, indexed, size, NONE);
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command-line options shared by the headless tools: --name value pairs, names from a fixed set
+ * Anything malformed, unknown or out of range prints the problem and the tool's usage line, then exits
+ */
+final class Options {
+    static final int MAX_SIDE = 1 << 15; // widest or tallest map the tools accept
+
+    private final Map<String, String> values = new HashMap<>();
+    private final String usage;
+
+    Options(String[] args, Set<String> names, String usage) {
+        this.usage = usage;
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length)
+                usage("Expected --name value, got " + args[i]);
+            if (!names.contains(args[i].substring(2)))
+                usage("Unknown option " + args[i]);
+            values.put(args[i].substring(2), args[i + 1]);
+        }
+    }
+
+    // The raw value, null if the option wasn't given
+    String get(String name) {
+        return values.get(name);
+    }
+
+    String get(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    long number(String name, long defaultValue) {
+        String value = values.get(name);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            usage("Not a number: --" + name + " " + value);
+            return defaultValue;
+        }
+    }
+
+    // Same as number(), but a value outside [min, max] is a usage error
+    long number(String name, long defaultValue, long min, long max) {
+        long value = number(name, defaultValue);
+        check(name, value, min, max);
+        return value;
+    }
+
+    // Comma-separated values, e.g. --ants 5,10,20, each within [min, max]
+    int[] list(String name, int defaultValue, int min, int max) {
+        String value = values.get(name);
+        if (value == null) return new int[] { defaultValue };
+        String[] parts = value.split(",");
+        int[] list = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                list[i] = Integer.parseInt(parts[i].trim());
+            } catch (NumberFormatException e) {
+                usage("Not a list of numbers: --" + name + " " + value);
+            }
+            check(name, list[i], min, max);
+        }
+        return list;
+    }
+
+    void usage(String problem) {
+        System.err.println(problem);
+        System.err.println(usage);
+        System.exit(1);
+    }
+
+    private void check(String name, long value, long min, long max) {
+        if (value < min || value > max)
+            usage("--" + name + " must be " + (max == Long.MAX_VALUE || max == Integer.MAX_VALUE
+                    ? "at least " + min : "from " + min + " to " + max) + ", got " + value);
+    }
+}
@@ -0,0 +1,191 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Monte Carlo sweep over colony setups: every combination of the listed starting ants and food, water and
+ * poison counts is run many times with different seeds, each run a single-threaded World on a shared pool
+ * Only a few runs per thread are in flight at once and each result is folded into its combination's running
+ * statistics and written out as one CSV row as soon as it arrives, so memory stays flat however many runs
+ * the sweep has. Rows come in completion order; the run's seed recreates it exactly in HeadlessRunner
+ *
+ * Usage: java ParameterSweep [--ants 5,10,20] [--food 10] [--water 6] [--poison 2,5] [--runs 100]
+ *                            [--ticks 10000] [--width 16] [--height 16] [--seed 1] [--threads cores]
+ *                            [--max-ants 10000] [--out sweep.csv]
+ */
+public class ParameterSweep {
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+    private static final Set<String> OPTIONS = Set.of("ants", "food", "water", "poison", "runs", "ticks", "width",
+            "height", "seed", "threads", "max-ants", "out");
+    private static final String USAGE = "Usage: java ParameterSweep [--ants 5,10,20] [--food 10] [--water 6] [--poison 2,5] [--runs 100]"
+            + " [--ticks 10000] [--width 16] [--height 16] [--seed 1] [--threads cores] [--max-ants 10000]"
+            + " [--out sweep.csv]";
+
+    private final int width, height;
+    private final long maxTicks, maxAnts, baseSeed;
+
+    ParameterSweep(int width, int height, long maxTicks, long maxAnts, long baseSeed) {
+        this.width = width;
+        this.height = height;
+        this.maxTicks = maxTicks;
+        this.maxAnts = maxAnts;
+        this.baseSeed = baseSeed;
+    }
+
+    // One setup to evaluate
+    record Setup(int ants, int food, int water, int poison) {}
+
+    enum Outcome { PERISHED, SURVIVED, CAPPED }
+
+    record Result(int setup, int run, long seed, Outcome outcome, long ticks, long peak, long births, long deaths) {}
+
+    // Running statistics of one setup (Welford's algorithm for the mean and spread of ticks survived)
+    static final class Stats {
+        long runs, perished, capped, peakMax;
+        double ticksMean, ticksM2, peakSum, birthsSum;
+
+        void add(Result r) {
+            runs++;
+            if (r.outcome() == Outcome.PERISHED) perished++;
+            if (r.outcome() == Outcome.CAPPED) capped++;
+            double delta = r.ticks() - ticksMean;
+            ticksMean += delta / runs;
+            ticksM2 += delta * (r.ticks() - ticksMean);
+            peakSum += r.peak();
+            peakMax = Math.max(peakMax, r.peak());
+            birthsSum += r.births();
+        }
+
+        double survival() {
+            return runs == 0 ? 0 : 1 - perished / (double) runs;
+        }
+
+        double ticksStdDev() {
+            return runs < 2 ? 0 : Math.sqrt(ticksM2 / (runs - 1));
+        }
+    }
+
+    // Seed of one run, independent of the order runs are scheduled in
+    long seed(int setup, int run) {
+        return World.mix(baseSeed ^ World.mix(setup * 0x9E3779B97F4A7C15L + run));
+    }
+
+    // Runs until the colony dies, reaches the tick limit, or grows past maxAnts
+    Result run(Setup setup, int setupIndex, int run) {
+        long seed = seed(setupIndex, run);
+        World world = new World(width, height, setup.ants(), setup.food(), setup.water(), setup.poison(), seed);
+        long peak = world.ants.alive();
+        Outcome outcome = Outcome.SURVIVED;
+        while (world.tick < maxTicks) {
+            world.update();
+            long alive = world.ants.alive();
+            if (alive > peak) peak = alive;
+            if (alive == 0) {
+                outcome = Outcome.PERISHED;
+                break;
+            }
+            if (alive > maxAnts) {
+                outcome = Outcome.CAPPED;
+                break;
+            }
+        }
+        return new Result(setupIndex, run, seed, outcome, world.tick, peak, world.births, world.ants.count(AntState.DEAD));
+    }
+
+    /**
+     * Runs every setup runs times on threads threads, writing a CSV row per run to out;
+     * returns the statistics per setup, in setup order
+     */
+    Stats[] sweep(List<Setup> setups, int runs, int threads, BufferedWriter out) throws IOException, InterruptedException {
+        Stats[] stats = new Stats[setups.size()];
+        for (int s = 0; s < stats.length; s++) stats[s] = new Stats();
+        out.write("ants,food,water,poison,run,seed,outcome,ticks,peak_population,births,deaths");
+        out.newLine();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            CompletionService<Result> done = new ExecutorCompletionService<>(pool);
+            long total = (long) setups.size() * runs, submitted = 0, finished = 0;
+            int limit = threads * IN_FLIGHT_PER_THREAD;
+
+            while (finished < total) {
+                // top up to the in-flight limit, then fold in whatever finishes next
+                while (submitted < total && submitted - finished < limit) {
+                    int s = (int) (submitted / runs), run = (int) (submitted % runs);
+                    Setup setup = setups.get(s);
+                    done.submit(() -> run(setup, s, run));
+                    submitted++;
+                }
+
+                Result r;
+                try {
+                    r = done.take().get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("A sweep run failed", e.getCause());
+                }
+                finished++;
+                stats[r.setup()].add(r);
+
+                Setup setup = setups.get(r.setup());
+                out.write(setup.ants() + "," + setup.food() + "," + setup.water() + "," + setup.poison() + ","
+                        + r.run() + "," + r.seed() + "," + r.outcome() + "," + r.ticks() + "," + r.peak() + ","
+                        + r.births() + "," + r.deaths());
+                out.newLine();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return stats;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options = new Options(args, OPTIONS, USAGE);
+        int width = (int) options.number("width", 16, 1, Options.MAX_SIDE);
+        int height = (int) options.number("height", 16, 1, Options.MAX_SIDE);
+        int runs = (int) options.number("runs", 100, 1, Integer.MAX_VALUE);
+        long maxTicks = options.number("ticks", 10_000, 0, Long.MAX_VALUE);
+        long seed = options.number("seed", 1);
+        int threads = (int) options.number("threads", Runtime.getRuntime().availableProcessors(), 1, Short.MAX_VALUE);
+        long maxAnts = options.number("max-ants", 10_000, 1, Long.MAX_VALUE);
+        String out = options.get("out", "sweep.csv");
+
+        // every combination of the listed values
+        List<Setup> setups = new ArrayList<>();
+        for (int ants : options.list("ants", 5, 1, Integer.MAX_VALUE))
+            for (int food : options.list("food", 10, 0, Integer.MAX_VALUE))
+                for (int water : options.list("water", 6, 0, Integer.MAX_VALUE))
+                    for (int poison : options.list("poison", 5, 0, Integer.MAX_VALUE)) {
+                        if ((long) food + water + poison > (long) width * height - 1)
+                            options.usage("Setup doesn't fit a " + width + "x" + height + " map: " + new Setup(ants, food, water, poison));
+                        setups.add(new Setup(ants, food, water, poison));
+                    }
+
+        ParameterSweep sweep = new ParameterSweep(width, height, maxTicks, maxAnts, seed);
+        long start = System.nanoTime();
+        Stats[] stats;
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(out))) {
+            stats = sweep.sweep(setups, runs, threads, writer);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d setups x %d runs on %d thread(s) in %.2f s (%.0f runs/sec), rows in %s%n",
+                setups.size(), runs, threads, seconds, setups.size() * runs / seconds, out);
+        System.out.printf("%6s %5s %5s %6s  %8s %10s %9s %9s %10s %9s%n",
+                "ants", "food", "water", "poison", "survival", "mean ticks", "sd ticks", "mean peak", "max peak", "mean born");
+        for (int s = 0; s < stats.length; s++) {
+            Setup setup = setups.get(s);
+            Stats st = stats[s];
+            System.out.printf("%6d %5d %5d %6d  %7.1f%% %10.0f %9.0f %9.1f %10d %9.1f%n",
+                    setup.ants(), setup.food(), setup.water(), setup.poison(), 100 * st.survival(), st.ticksMean,
+                    st.ticksStdDev(), st.peakSum / st.runs, st.peakMax, st.birthsSum / st.runs);
+        }
+    }
+}
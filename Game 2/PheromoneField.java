@@ -0,0 +1,151 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Food pheromone trail laid by ants carrying food home (returning ants steer by World.homeField, so there is no
+ * home trail)
+ * The trail is a pair of float grids (row-major, cell = y * width + x). Ants deposit into the current grid,
+ * then step() writes the evaporated and diffused values into the spare grid and swaps the two.
+ * The kernel runs in fixed bands of rows that are allocated once; every cell only reads the previous grid,
+ * so the result is the same at any thread count
+ */
+public class PheromoneField {
+    public static final float DEPOSIT = 1f;        // laid by one ant per tick
+    public static final float MIN_TRAIL = 0.05f;   // weaker than this isn't worth following
+    private static final int BAND_ROWS = 64;
+
+    public final int width, height;
+    private final float keep;      // 1 - evaporation
+    private final float diffusion; // share of a cell that spreads evenly to its 4 neighbors each tick
+
+    private float[] food;     // current trail
+    private float[] foodNext; // written by step()
+    private final Band[] bands;
+    private final Kernel kernel = new Kernel();
+
+    public PheromoneField(int width, int height, float evaporation, float diffusion) {
+        this.width = width;
+        this.height = height;
+        this.keep = 1f - evaporation;
+        this.diffusion = diffusion;
+        this.food = new float[width * height];
+        this.foodNext = new float[width * height];
+
+        bands = new Band[(height + BAND_ROWS - 1) / BAND_ROWS];
+        for (int b = 0; b < bands.length; b++)
+            bands[b] = new Band(b * BAND_ROWS, Math.min(height, (b + 1) * BAND_ROWS));
+    }
+
+    public float food(int x, int y) {
+        return food[y * width + x];
+    }
+
+    // Current trail, for snapshots
+    float[] foodTrail() {
+        return food;
+    }
+
+    // Ants carrying food mark the way back to it. Serial, in ant order
+    void deposit(AntStore ants) {
+        for (int c = 0; c < ants.chunks(); c++) {
+            int[] xs = ants.x[c], ys = ants.y[c];
+            byte[] states = ants.state[c];
+            int n = Math.min(AntStore.CHUNK, ants.size() - (c << AntStore.CHUNK_BITS));
+
+            for (int j = 0; j < n; j++)
+                if (states[j] == AntStore.RETURNING_HOME) food[ys[j] * width + xs[j]] += DEPOSIT;
+        }
+    }
+
+    // Evaporates and diffuses the trail by one tick; pool may be null to run on the calling thread
+    void step(ForkJoinPool pool) {
+        if (pool == null || bands.length < 2) {
+            for (Band band : bands) band.run();
+        } else {
+            kernel.reinitialize();
+            pool.invoke(kernel);
+        }
+
+        float[] t = food; food = foodNext; foodNext = t;
+    }
+
+    /**
+     * Neighbor (of the 8) with the strongest food trail that doesn't lead back toward a home, or -1 if none
+     * is above MIN_TRAIL. Food trails run from food to home, so walking them outward leads to the food.
+     * Blocked (poison) cells, which homes can't reach, and the ant's own cell are never picked
+     */
+    int followFood(int x, int y, DistanceField homes) {
+        int here = homes.distance(y * width + x);
+        int best = -1;
+        float strongest = MIN_TRAIL;
+
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                if (nx == x && ny == y) continue;
+                int distance = homes.distance(ny * width + nx);
+                if (distance == DistanceField.UNREACHABLE || distance < here) continue;
+                float f = food[ny * width + nx];
+                if (f > strongest) {
+                    strongest = f;
+                    best = ny * width + nx;
+                }
+            }
+        }
+        return best;
+    }
+
+    // next = keep * ((1 - diffusion) * cell + diffusion * mean of the 4 neighbors); off-map neighbors mirror the cell
+    private void diffuse(float[] in, float[] out, int fromRow, int toRow) {
+        float self = keep * (1f - diffusion);
+        float side = keep * diffusion * 0.25f;
+
+        for (int y = fromRow; y < toRow; y++) {
+            int row = y * width;
+            int up = y > 0 ? row - width : row;
+            int down = y < height - 1 ? row + width : row;
+
+            // edge columns apart, so the interior loop has no branches and can be vectorized
+            out[row] = cell(in, self, side, row, row, Math.min(row + 1, row + width - 1), up, down);
+            for (int x = 1; x < width - 1; x++) {
+                out[row + x] = self * in[row + x]
+                        + side * (in[row + x - 1] + in[row + x + 1] + in[up + x] + in[down + x]);
+            }
+            if (width > 1) {
+                int last = width - 1;
+                out[row + last] = cell(in, self, side, row + last, row + last - 1, row + last, up + last, down + last);
+            }
+        }
+    }
+
+    private static float cell(float[] in, float self, float side, int at, int left, int right, int up, int down) {
+        return self * in[at] + side * (in[left] + in[right] + in[up] + in[down]);
+    }
+
+    // Rows [from, to) of the trail
+    private final class Band extends RecursiveAction {
+        private final int from, to;
+
+        Band(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        void run() {
+            diffuse(food, foodNext, from, to);
+        }
+
+        @Override
+        protected void compute() {
+            run();
+        }
+    }
+
+    // Forks every band; reused each tick together with the bands, so stepping allocates nothing
+    private final class Kernel extends RecursiveAction {
+        @Override
+        protected void compute() {
+            for (Band band : bands) band.reinitialize();
+            invokeAll(bands);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Per-tick timings and population numbers for one World, see World.enableMetrics()
+ * The World thread writes once per tick; JMX and the dump thread only read, so plain volatile fields suffice.
+ * A World without metrics doesn't time anything, its update() only checks for null
+ */
+public final class SimMetrics implements SimMetricsMBean {
+    private static final long RATE_WINDOW = 1_000_000_000L; // ticks/sec is measured over about a second
+
+    private volatile long tick;
+    private volatile long lastTickNanos, totalTickNanos, maxTickNanos, timedTicks;
+    private volatile long birthsLastTick, deathsLastTick, births, deaths;
+    private volatile long searchingFood, returningHome, searchingWater;
+    private volatile double ticksPerSecond;
+    private long windowStart = System.nanoTime(), windowTicks;
+    private boolean windowFull;
+
+    private ObjectName name;
+    private ScheduledExecutorService dumper;
+
+    // Starts from the world's totals so far, so the first tick of a resumed world only reports its own births and deaths
+    SimMetrics(long tick, long births, long deaths) {
+        this.tick = tick;
+        this.births = births;
+        this.deaths = deaths;
+    }
+
+    void recordTick(long tick, long nanos, long births, long deaths, AntStore ants) {
+        birthsLastTick = births - this.births;
+        deathsLastTick = deaths - this.deaths;
+        this.births = births;
+        this.deaths = deaths;
+        searchingFood = ants.count(AntState.SEARCHING_FOOD);
+        returningHome = ants.count(AntState.RETURNING_HOME);
+        searchingWater = ants.count(AntState.SEARCHING_WATER);
+
+        lastTickNanos = nanos;
+        totalTickNanos += nanos;
+        if (nanos > maxTickNanos) maxTickNanos = nanos;
+        timedTicks++;
+        this.tick = tick;
+
+        long now = System.nanoTime();
+        windowTicks++;
+        if (now - windowStart >= RATE_WINDOW) {
+            ticksPerSecond = windowTicks * 1e9 / (now - windowStart);
+            windowStart = now;
+            windowTicks = 0;
+            windowFull = true;
+        } else if (!windowFull) {
+            ticksPerSecond = windowTicks * 1e9 / Math.max(1, now - windowStart); // provisional during the first second
+        }
+    }
+
+    // Publishes these metrics over JMX, e.g. "AntColony:type=Simulation" (use different names for several worlds)
+    public synchronized void register(String objectName) {
+        try {
+            name = new ObjectName(objectName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register simulation metrics as " + objectName, e);
+        }
+    }
+
+    public synchronized void unregister() {
+        stopDump();
+        if (name == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            // already gone
+        }
+        name = null;
+    }
+
+    // Prints a line every periodMillis on a daemon thread: CSV rows (after a header) or a readable summary
+    public synchronized void startDump(PrintStream out, long periodMillis, boolean csv) {
+        stopDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sim-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        if (csv) out.println(csvHeader());
+        dumper.scheduleAtFixedRate(() -> out.println(csv ? csvRow() : toString()), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopDump() {
+        if (dumper != null) dumper.shutdown();
+        dumper = null;
+    }
+
+    public static String csvHeader() {
+        return "tick,ticks_per_sec,last_tick_ms,mean_tick_ms,max_tick_ms,births_last_tick,deaths_last_tick,"
+                + "births,deaths,searching_food,returning_home,searching_water";
+    }
+
+    public String csvRow() {
+        return String.format("%d,%.1f,%.3f,%.3f,%.3f,%d,%d,%d,%d,%d,%d,%d", getTick(), getTicksPerSecond(),
+                getLastTickMillis(), getMeanTickMillis(), getMaxTickMillis(), getBirthsLastTick(), getDeathsLastTick(),
+                getBirths(), getDeaths(), getSearchingFood(), getReturningHome(), getSearchingWater());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("tick %d: %.0f ticks/sec, %.3f ms/tick (max %.3f), +%d born -%d died last tick,"
+                        + " alive %d (food %d, home %d, water %d)", getTick(), getTicksPerSecond(), getMeanTickMillis(),
+                getMaxTickMillis(), getBirthsLastTick(), getDeathsLastTick(), getAlive(), getSearchingFood(),
+                getReturningHome(), getSearchingWater());
+    }
+
+    @Override
+    public long getTick() {
+        return tick;
+    }
+
+    @Override
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    @Override
+    public double getLastTickMillis() {
+        return lastTickNanos / 1e6;
+    }
+
+    @Override
+    public double getMeanTickMillis() {
+        long n = timedTicks;
+        return n == 0 ? 0 : totalTickNanos / 1e6 / n;
+    }
+
+    @Override
+    public double getMaxTickMillis() {
+        return maxTickNanos / 1e6;
+    }
+
+    @Override
+    public long getBirthsLastTick() {
+        return birthsLastTick;
+    }
+
+    @Override
+    public long getDeathsLastTick() {
+        return deathsLastTick;
+    }
+
+    @Override
+    public long getBirths() {
+        return births;
+    }
+
+    @Override
+    public long getDeaths() {
+        return deaths;
+    }
+
+    @Override
+    public long getSearchingFood() {
+        return searchingFood;
+    }
+
+    @Override
+    public long getReturningHome() {
+        return returningHome;
+    }
+
+    @Override
+    public long getSearchingWater() {
+        return searchingWater;
+    }
+
+    @Override
+    public long getAlive() {
+        return searchingFood + returningHome + searchingWater;
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * JMX view of SimMetrics (registered as AntColony:type=Simulation by default)
+ */
+public interface SimMetricsMBean {
+    long getTick();
+    double getTicksPerSecond();
+    double getLastTickMillis();
+    double getMeanTickMillis();
+    double getMaxTickMillis();
+    long getBirthsLastTick();
+    long getDeathsLastTick();
+    long getBirths();
+    long getDeaths();
+    long getSearchingFood();
+    long getReturningHome();
+    long getSearchingWater();
+    long getAlive();
+}
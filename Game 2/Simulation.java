@@ -0,0 +1,118 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Steps a World on its own thread at a fixed tick rate, independent of how fast anything is drawn
+ * After every tick a FrameSnapshot is published through an AtomicReference; readers just take the latest one,
+ * so neither side ever waits for the other. Once started, the World belongs to this thread: change it
+ * through edit(), which applies the change between two ticks
+ */
+public class Simulation {
+    private static final int MAX_CATCH_UP = 5; // ticks run back to back after a stall before the schedule is reset
+
+    public final World world;
+    private final AtomicReference<FrameSnapshot> latest = new AtomicReference<>();
+    private final Queue<Consumer<World>> edits = new ConcurrentLinkedQueue<>();
+    private volatile long tickNanos;
+    private volatile double heatmapDensity = 4.0; // ants per cell above which counts are drawn instead of ants
+    private volatile boolean running;
+    private Thread thread;
+
+    public Simulation(World world, double ticksPerSecond) {
+        this.world = world;
+        setTicksPerSecond(ticksPerSecond);
+        latest.set(FrameSnapshot.capture(world, null, heatmapDensity));
+    }
+
+    // Newest published state; never blocks
+    public FrameSnapshot latest() {
+        return latest.get();
+    }
+
+    public void setTicksPerSecond(double ticksPerSecond) {
+        if (!(ticksPerSecond > 0)) throw new IllegalArgumentException("Tick rate must be positive: " + ticksPerSecond);
+        this.tickNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ticksPerSecond);
+    }
+
+    // Ants per cell (on average) above which snapshots carry a count heatmap instead of individual ants
+    public void setHeatmapDensity(double antsPerCell) {
+        this.heatmapDensity = antsPerCell;
+        edit(w -> {}); // republish right away, even while the colony is stopped
+    }
+
+    // Runs change on the simulation thread before the next tick (or right away if the thread isn't running)
+    public synchronized void edit(Consumer<World> change) {
+        edits.add(change);
+        if (thread == null) applyEdits();
+    }
+
+    public synchronized void start() {
+        if (thread != null) return;
+        running = true;
+        thread = new Thread(this::run, "colony-simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Stops after the current tick and waits for the thread to finish
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = thread;
+        }
+        if (t == null || t == Thread.currentThread()) return;
+        LockSupport.unpark(t);
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Fixed timestep: tick n is due at start + n * tickNanos; a short stall is caught up, a long one is skipped
+    private void run() {
+        long due = System.nanoTime();
+        while (running) {
+            applyEdits();
+            world.update();
+            publish();
+            if (world.ants.alive() == 0) break; // the colony perished, nothing left to simulate
+
+            due += tickNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                while (running && (wait = due - System.nanoTime()) > 0) LockSupport.parkNanos(this, wait); // spurious wake-ups
+            } else if (-wait > MAX_CATCH_UP * tickNanos) {
+                due = System.nanoTime();
+            }
+        }
+
+        // hand the world back; edits queued meanwhile are applied here, later ones by the caller
+        synchronized (this) {
+            running = false;
+            thread = null;
+            applyEdits();
+        }
+    }
+
+    private synchronized void applyEdits() {
+        if (edits.isEmpty()) return;
+        Consumer<World> change;
+        while ((change = edits.poll()) != null) change.accept(world);
+        publish();
+    }
+
+    private void publish() {
+        latest.set(FrameSnapshot.capture(world, latest.get(), heatmapDensity));
+    }
+}
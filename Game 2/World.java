@@ -1,33 +1,102 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Holds the grid and all ants; creates the map and advances the simulation
  * Also handles spawning new ants when food is delivered
+ *
+ * A tick can be split across threads: ants are stepped in fixed partitions of PARTITION ants,
+ * every partition draws from its own SplittableRandom seeded from (seed, tick, partition), and births are
+ * merged after all partitions finish. The outcome of a seed is therefore identical at any thread count.
+ *
+ * Returning ants follow homeField, one distance/flow field toward the nearest of any number of homes that
+ * steers around poison and is repaired incrementally when tiles change (see setCell). enableScent() adds the
+ * same kind of field toward the nearest FOOD and WATER tiles for searching ants.
  */
 
 public class World {
     public final int width, height;
     public final AntCell[][] grid;
-    public final java.util.List<Ant> ants = new ArrayList<>();
-    public final int homeX, homeY;
+    public final AntStore ants = new AntStore();
+    public final int homeX, homeY; // the first home; more can be added with addHome
+    public final DistanceField homeField;
+    public DistanceField foodField, waterField; // null until enableScent()
+    public final long seed;     // map layout and every ant's random choices derive from it
+    public long tick;           // ticks simulated so far
+    public long births;         // ants spawned by food deliveries so far
+    public PheromoneField pheromones; // null until enablePheromones(); searching ants then follow food trails
+    public SimMetrics metrics;  // null until enableMetrics()
+    public OccupancyIndex occupancy; // null until enableOccupancy(); ants per cell, synced after every tick
+
+    private final Random mapRandom;
+    private int terrainVersion;            // bumped on every tile change
+    private int[] homes = new int[1];      // home cells (y * width + x)
+    private int homeCount;
+    private ForkJoinPool pool;             // null = step every partition on the calling thread
+    private int[] partitionBirths = new int[0]; // deliveries per partition this tick
+    private int[][] partitionBirthCells = new int[0][]; // the home each delivery was made at
+    private int[] partitionDeltas = new int[0]; // state count changes per partition this tick, STATES entries each
+
+    private static final int STATES = AntState.values().length;
+    private static final int PARTITION = 4096;   // ants per partition; fixed, so a seed plays out the same at any thread count
+    private static final int COMPACT_MIN = 4096; // don't bother compacting fewer corpses than this
+    private static final float EVAPORATION = 0.02f;
+    private static final float DIFFUSION = 0.1f;
 
     public World(int width, int height, int startingAnts) {
+        this(width, height, startingAnts, 10, 6, 5, System.nanoTime());
+    }
+
+    public World(int width, int height, int startingAnts, int food, int water, int poison, long seed) {
+        if (food + water + poison > width * height - 1)
+            throw new IllegalArgumentException("Not enough room for " + (food + water + poison) + " tiles");
+
         this.width = width;
         this.height = height;
         this.grid = new AntCell[width][height];
         this.homeX = width / 2;
         this.homeY = height / 2;
+        this.seed = seed;
+        this.mapRandom = new Random(seed);
 
-        generateMap();
+        generateMap(food, water, poison);
+
+        homes[homeCount++] = homeY * width + homeX;
+        this.homeField = newField(null);
+        homeField.initSource(homes[0]);
+        homeField.rebuild();
 
         // spawn starting ants at home
         for (int i = 0; i < startingAnts; i++) {
-            ants.add(new Ant(homeX, homeY));
+            ants.add(homeX, homeY);
         }
     }
 
-    // fresh random map each run
-    private void generateMap() {
+    // Restores a world from snapshot data (terrain row-major, one CellType ordinal per cell); see WorldSnapshot
+    World(int width, int height, long seed, byte[] terrain, int[] homes) {
+        this.width = width;
+        this.height = height;
+        this.grid = new AntCell[width][height];
+        this.homeX = homes[0] % width;
+        this.homeY = homes[0] / width;
+        this.seed = seed;
+        this.mapRandom = new Random(seed);
+
+        CellType[] types = CellType.values();
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                grid[x][y] = new AntCell(x, y, types[terrain[y * width + x]]);
+
+        this.homes = homes.clone();
+        this.homeCount = homes.length;
+        this.homeField = newField(null);
+        for (int home : homes) homeField.initSource(home);
+        homeField.rebuild();
+    }
+
+    // fresh random map each run (same map for the same seed)
+    private void generateMap(int food, int water, int poison) {
 
         // Initialize to empty
         for (int x = 0; x < width; x++)
@@ -35,9 +104,9 @@ public class World {
                 grid[x][y] = new AntCell(x, y, CellType.EMPTY);
 
         // Random scatter; tweak counts as desired. Stick to lower poison for longer games
-        placeRandom(CellType.FOOD, 10);
-        placeRandom(CellType.WATER, 6);
-        placeRandom(CellType.POISON, 5);
+        placeRandom(CellType.FOOD, food);
+        placeRandom(CellType.WATER, water);
+        placeRandom(CellType.POISON, poison);
 
         // Ensure home is safe
         grid[homeX][homeY].type = CellType.EMPTY;
@@ -45,10 +114,9 @@ public class World {
 
     // Place count tiles of a type into random empty locations (never on home)
     private void placeRandom(CellType type, int count) {
-        Random rand = new Random();
         while (count > 0) {
-            int x = rand.nextInt(width);
-            int y = rand.nextInt(height);
+            int x = mapRandom.nextInt(width);
+            int y = mapRandom.nextInt(height);
 
             if (x == homeX && y == homeY) continue; // never overwrite home
 
@@ -59,18 +127,189 @@ public class World {
         }
     }
 
+    /**
+     * Changes one tile (placing, removing or depleting food, water or poison); the distance fields are
+     * repaired right away, renderers notice through terrainVersion()
+     */
+    public void setCell(int x, int y, CellType type) {
+        CellType old = grid[x][y].type;
+        if (old == type) return;
+        if (type == CellType.POISON && isHome(x, y))
+            throw new IllegalArgumentException("Homes can't be poisoned: " + x + "," + y);
+
+        int cell = y * width + x;
+        grid[x][y].type = type;
+        homeField.setBlocked(cell, type == CellType.POISON);
+        if (foodField != null) {
+            updateField(foodField, CellType.FOOD, cell, old, type);
+            updateField(waterField, CellType.WATER, cell, old, type);
+        }
+        terrainVersion++;
+    }
+
+    private static void updateField(DistanceField field, CellType sourceType, int cell, CellType old, CellType type) {
+        if (old == sourceType) field.removeSource(cell);
+        field.setBlocked(cell, type == CellType.POISON);
+        if (type == sourceType) field.addSource(cell);
+    }
+
+    // Adds another home: returning ants head for whichever home is nearest, new ants hatch where food was delivered
+    public void addHome(int x, int y) {
+        if (isHome(x, y)) return;
+        setCell(x, y, CellType.EMPTY); // homes are always safe
+
+        if (homeCount == homes.length) homes = Arrays.copyOf(homes, homeCount * 2);
+        homes[homeCount++] = y * width + x;
+        homeField.addSource(y * width + x);
+        terrainVersion++;
+    }
+
+    public boolean isHome(int x, int y) {
+        return homeField.isSource(y * width + x);
+    }
+
+    // Home cells (y * width + x), the first one at (homeX, homeY)
+    public int[] homes() {
+        return Arrays.copyOf(homes, homeCount);
+    }
+
+    public int terrainVersion() {
+        return terrainVersion;
+    }
+
+    // Field with poison blocked and every tile of sourceType (if any) as a source; rebuild() still to be called
+    private DistanceField newField(CellType sourceType) {
+        DistanceField field = new DistanceField(width, height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                CellType type = grid[x][y].type;
+                if (type == CellType.POISON) field.initBlocked(y * width + x);
+                else if (type == sourceType) field.initSource(y * width + x);
+            }
+        }
+        return field;
+    }
+
+    // Turns on distance fields to the nearest food and water: searching ants then walk straight to the closest one
+    public void enableScent() {
+        if (foodField != null) return;
+        foodField = newField(CellType.FOOD);
+        foodField.rebuild();
+        waterField = newField(CellType.WATER);
+        waterField.rebuild();
+    }
+
+    // Turns on pheromone trails: ants lay them every tick and food-seeking ants mostly follow them
+    public void enablePheromones() {
+        if (pheromones == null) pheromones = new PheromoneField(width, height, EVAPORATION, DIFFUSION);
+    }
+
+    // Turns on the per-cell ant index (see OccupancyIndex), built from the current ants right away
+    public OccupancyIndex enableOccupancy() {
+        if (occupancy == null) {
+            occupancy = new OccupancyIndex(width, height);
+            occupancy.rebuild(ants);
+        }
+        return occupancy;
+    }
+
+    // Turns on per-tick timing and population metrics (register them for JMX with SimMetrics.register)
+    public SimMetrics enableMetrics() {
+        if (metrics == null) metrics = new SimMetrics(tick, births, ants.count(AntState.DEAD));
+        return metrics;
+    }
+
+    // Number of threads update() may use; 1 (the default) keeps everything on the calling thread
+    public void setThreads(int threads) {
+        if (pool != null) pool.shutdown();
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
     /**
      * Advance the world by one tick: update every ant.
-     * index-based loop so list can grow safely during iteration to fix ConcurrentModificationException crash
+     * Ants born this tick are added once every partition is done and first move on the next tick
      */
     public void update() {
-        for (int i = 0; i < ants.size(); i++) {
-            ants.get(i).update(this);
+        long started = metrics != null ? System.nanoTime() : 0;
+        int partitions = (ants.size() + PARTITION - 1) / PARTITION;
+        if (partitionBirths.length < partitions) {
+            partitionBirths = new int[partitions];
+            partitionBirthCells = Arrays.copyOf(partitionBirthCells, partitions);
+            partitionDeltas = new int[partitions * STATES];
+        }
+
+        if (pool == null || partitions < 2) {
+            for (int p = 0; p < partitions; p++) updatePartition(p);
+        } else {
+            pool.invoke(new Step(0, partitions));
+        }
+
+        // merge state counts and births in partition order
+        for (int p = 0; p < partitions; p++) {
+            for (int s = 0; s < STATES; s++) ants.adjustCount(s, partitionDeltas[p * STATES + s]);
+            for (int b = 0; b < partitionBirths[p]; b++) spawnAt(partitionBirthCells[p][b]);
+        }
+
+        // trails are laid serially in ant order, then spread on the pool
+        if (pheromones != null) {
+            pheromones.deposit(ants);
+            pheromones.step(pool);
+        }
+
+        // once corpses outnumber the living, most of every tick would be spent skipping them
+        boolean compacted = ants.corpses() >= COMPACT_MIN && ants.corpses() > ants.alive();
+        if (compacted) ants.compact();
+        if (occupancy != null) occupancy.sync(ants, compacted);
+        tick++;
+        if (metrics != null) metrics.recordTick(tick, System.nanoTime() - started, births, ants.count(AntState.DEAD), ants);
+    }
+
+    private void updatePartition(int p) {
+        int from = p * PARTITION;
+        int to = Math.min(ants.size(), from + PARTITION);
+        if (partitionBirthCells[p] == null)
+            partitionBirthCells[p] = new int[PARTITION]; // at most one delivery per ant
+        Arrays.fill(partitionDeltas, p * STATES, (p + 1) * STATES, 0);
+        partitionBirths[p] = Ant.update(this, from, to, new SplittableRandom(streamSeed(p)),
+                partitionDeltas, p * STATES, partitionBirthCells[p]);
+    }
+
+    // Independent, well-mixed seed for one partition's random stream in the current tick
+    private long streamSeed(int partition) {
+        return mix(seed ^ mix(tick * 0x9E3779B97F4A7C15L + partition));
+    }
+
+    // SplitMix64 finalizer
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Splits a partition range in halves until one partition is left
+    private final class Step extends RecursiveAction {
+        private final int from, to;
+
+        Step(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                updatePartition(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Step(from, mid), new Step(mid, to));
         }
     }
 
-    // Called when an ant delivers food to spawn another
-    public void spawnNewAnt() {
-        ants.add(new Ant(homeX, homeY));
+    // The one way ants are born: a delivery at home (y * width + x), merged in by update()
+    private void spawnAt(int home) {
+        ants.add(home % width, home / width);
+        if (occupancy != null) occupancy.add(ants.size() - 1, home);
+        births++;
     }
 }
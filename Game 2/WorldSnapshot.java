@@ -0,0 +1,180 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary checkpoint of a World, written and read through memory-mapped files
+ * Layout, little-endian: header, home cells, terrain (one CellType ordinal byte per cell, row-major), then per
+ * AntStore chunk its x[], y[], state bytes and carrying bits, then the food trail if pheromones are on.
+ * Every random choice the simulation makes derives from (seed, tick), so restoring those resumes a run exactly.
+ * save() forces every mapped region to disk before returning and keeps no mapping around, so the file can be
+ * renamed over an older checkpoint right away
+ */
+public final class WorldSnapshot {
+    private static final int MAGIC = 0x414E5457; // "ANTW"
+    private static final int VERSION = 2; // 1 also stored a home trail
+    private static final int PHEROMONES = 1, SCENT = 2; // flags
+    private static final int HEADER = 4 * 4 + 4 * 8 + 3 * 4; // magic, version, width, height; seed, tick, births, deaths; homes, ants, flags
+    private static final int WINDOW = 1 << 30; // largest region mapped at once
+
+    private WorldSnapshot() {}
+
+    public static void save(World world, Path file) throws IOException {
+        AntStore ants = world.ants;
+        int[] homes = world.homes();
+        int flags = (world.pheromones != null ? PHEROMONES : 0) | (world.foodField != null ? SCENT : 0);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long pos = HEADER + 4L * homes.length;
+            ByteBuffer header = map(channel, FileChannel.MapMode.READ_WRITE, 0, pos);
+            header.putInt(MAGIC).putInt(VERSION).putInt(world.width).putInt(world.height);
+            header.putLong(world.seed).putLong(world.tick).putLong(world.births).putLong(ants.count(AntState.DEAD));
+            header.putInt(homes.length).putInt(ants.size()).putInt(flags);
+            header.asIntBuffer().put(homes);
+            force(header);
+            header = null;
+
+            int cells = world.width * world.height;
+            ByteBuffer terrain = map(channel, FileChannel.MapMode.READ_WRITE, pos, cells);
+            for (int x = 0; x < world.width; x++)
+                for (int y = 0; y < world.height; y++)
+                    terrain.put(y * world.width + x, (byte) world.grid[x][y].type.ordinal());
+            force(terrain);
+            terrain = null;
+            pos += cells;
+
+            for (int c = 0; c < ants.chunks(); c++) {
+                int n = Math.min(AntStore.CHUNK, ants.size() - (c << AntStore.CHUNK_BITS));
+                long bytes = chunkBytes(n);
+                ByteBuffer chunk = map(channel, FileChannel.MapMode.READ_WRITE, pos, bytes);
+                chunk.asIntBuffer().put(ants.x[c], 0, n);
+                chunk.position(4 * n);
+                chunk.asIntBuffer().put(ants.y[c], 0, n);
+                chunk.position(8 * n);
+                chunk.put(ants.state[c], 0, n);
+                chunk.asLongBuffer().put(ants.carrying[c], 0, (n + 63) >>> 6);
+                force(chunk);
+                pos += bytes;
+            }
+
+            if (world.pheromones != null) {
+                writeFloats(channel, pos, world.pheromones.foodTrail());
+            }
+            channel.force(true); // file length and metadata
+        }
+    }
+
+    // Reads a snapshot back; a file that is truncated or whose header doesn't add up is reported as an IOException
+    public static World load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER) throw new IOException(file + " is too short for a colony snapshot");
+            ByteBuffer header = map(channel, FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (header.getInt() != MAGIC) throw new IOException(file + " is not a colony snapshot");
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version + " in " + file);
+
+            int width = header.getInt(), height = header.getInt();
+            long seed = header.getLong(), tick = header.getLong(), births = header.getLong(), deaths = header.getLong();
+            int homeCount = header.getInt(), antCount = header.getInt(), flags = header.getInt();
+
+            long cells = (long) width * height;
+            if (width < 1 || height < 1 || cells > Integer.MAX_VALUE)
+                throw new IOException("Bad map size " + width + "x" + height + " in " + file);
+            if (homeCount < 1 || homeCount > cells) throw new IOException("Bad home count " + homeCount + " in " + file);
+            if (antCount < 0) throw new IOException("Bad ant count " + antCount + " in " + file);
+            if (tick < 0 || births < 0 || deaths < 0 || deaths > antCount)
+                throw new IOException("Bad counters (tick " + tick + ", births " + births + ", deaths " + deaths + ") in " + file);
+
+            long expected = HEADER + 4L * homeCount + cells
+                    + (long) (antCount >> AntStore.CHUNK_BITS) * chunkBytes(AntStore.CHUNK)
+                    + chunkBytes(antCount & (AntStore.CHUNK - 1))
+                    + ((flags & PHEROMONES) != 0 ? 4 * cells : 0);
+            if (channel.size() != expected)
+                throw new IOException(file + " should be " + expected + " bytes for its header, but is " + channel.size());
+
+            long pos = HEADER;
+            int[] homes = new int[homeCount];
+            map(channel, FileChannel.MapMode.READ_ONLY, pos, 4L * homeCount).asIntBuffer().get(homes);
+            pos += 4L * homeCount;
+            for (int home : homes)
+                if (home < 0 || home >= cells) throw new IOException("Home cell " + home + " is off the map in " + file);
+
+            byte[] terrain = new byte[width * height];
+            map(channel, FileChannel.MapMode.READ_ONLY, pos, terrain.length).get(terrain);
+            pos += terrain.length;
+            int types = CellType.values().length;
+            for (byte type : terrain)
+                if (type < 0 || type >= types) throw new IOException("Bad tile type " + type + " in " + file);
+
+            World world = new World(width, height, seed, terrain, homes);
+            world.tick = tick;
+            world.births = births;
+
+            AntStore ants = world.ants;
+            ants.resize(antCount);
+            for (int c = 0; c < ants.chunks(); c++) {
+                int n = Math.min(AntStore.CHUNK, antCount - (c << AntStore.CHUNK_BITS));
+                long bytes = chunkBytes(n);
+                ByteBuffer chunk = map(channel, FileChannel.MapMode.READ_ONLY, pos, bytes);
+                chunk.asIntBuffer().get(ants.x[c], 0, n);
+                chunk.position(4 * n);
+                chunk.asIntBuffer().get(ants.y[c], 0, n);
+                chunk.position(8 * n);
+                chunk.get(ants.state[c], 0, n);
+                chunk.asLongBuffer().get(ants.carrying[c], 0, (n + 63) >>> 6);
+                pos += bytes;
+            }
+            ants.recount(deaths);
+
+            if ((flags & SCENT) != 0) world.enableScent();
+            if ((flags & PHEROMONES) != 0) {
+                world.enablePheromones();
+                readFloats(channel, pos, world.pheromones.foodTrail());
+            }
+            return world;
+        }
+    }
+
+    // x and y ints, state bytes, carrying bits rounded up to whole longs
+    private static long chunkBytes(int n) {
+        return 9L * n + 8L * ((n + 63) >>> 6);
+    }
+
+    private static long writeFloats(FileChannel channel, long pos, float[] values) throws IOException {
+        for (int off = 0; off < values.length; ) {
+            int n = Math.min(values.length - off, WINDOW / 4);
+            ByteBuffer region = map(channel, FileChannel.MapMode.READ_WRITE, pos, 4L * n);
+            region.asFloatBuffer().put(values, off, n);
+            force(region);
+            off += n;
+            pos += 4L * n;
+        }
+        return pos;
+    }
+
+    private static long readFloats(FileChannel channel, long pos, float[] values) throws IOException {
+        for (int off = 0; off < values.length; ) {
+            int n = Math.min(values.length - off, WINDOW / 4);
+            map(channel, FileChannel.MapMode.READ_ONLY, pos, 4L * n).asFloatBuffer().get(values, off, n);
+            off += n;
+            pos += 4L * n;
+        }
+        return pos;
+    }
+
+    // Writes a mapped region through to the disk
+    private static void force(ByteBuffer mapped) {
+        ((MappedByteBuffer) mapped).force();
+    }
+
+    private static ByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long pos, long bytes) throws IOException {
+        if (mode == FileChannel.MapMode.READ_ONLY && pos + bytes > channel.size())
+            throw new IOException("Snapshot is truncated");
+        return channel.map(mode, pos, bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,58 @@
+import bench.Workload;
+
+import java.util.Random;
+
+/**
+ * Benchmark workload: A* queries over a seeded random terrain grid
+ * Terrain uses the same 50/20/20/10 open/grass/swamp/obstacle mix as Game1GUI.randomizeTerrain; starts and goals
+ * are never obstacles, so every query is a real search
+ */
+public class AStarWorkload implements Workload {
+    private static final int QUERIES = 64; // fixed set of start/goal pairs, cycled through
+
+    private TerrainGrid grid;
+    private final PathSearch search = new PathSearch();
+    private final int[] starts = new int[QUERIES], goals = new int[QUERIES];
+    private int next;
+
+    @Override
+    public void setup(int size, long seed) {
+        Random rand = new Random(seed);
+        grid = new TerrainGrid(size, size);
+
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                int roll = rand.nextInt(100);
+                TerrainType type;
+
+                if (roll < 50) type = TerrainType.OPEN;
+                else if (roll < 70) type = TerrainType.GRASSLAND;
+                else if (roll < 90) type = TerrainType.SWAMPLAND;
+                else type = TerrainType.OBSTACLE;
+
+                grid.set(x, y, type);
+            }
+        }
+
+        for (int i = 0; i < QUERIES; i++) {
+            starts[i] = openCell(rand);
+            goals[i] = openCell(rand);
+        }
+    }
+
+    // Random cell that isn't an obstacle
+    private int openCell(Random rand) {
+        int cell;
+        do {
+            cell = rand.nextInt(grid.size());
+        } while (grid.get(cell) == TerrainType.OBSTACLE);
+        return cell;
+    }
+
+    @Override
+    public long run() {
+        int i = next;
+        next = (i + 1) % QUERIES;
+        return search.search(grid, starts[i], goals[i]);
+    }
+}
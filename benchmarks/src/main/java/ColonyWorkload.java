@@ -0,0 +1,30 @@
+import bench.Workload;
+
+/**
+ * Benchmark workload: World.update ticks on the 16x16 map Main uses, with Main's tile counts and the given seed
+ * Every call advances the same colony by one tick, so the measurement follows it as it grows and dies; once every
+ * ant is dead the colony starts over from the seed
+ */
+public class ColonyWorkload implements Workload {
+    private int startingAnts;
+    private long seed;
+    private World world;
+
+    @Override
+    public void setup(int size, long seed) {
+        this.startingAnts = size;
+        this.seed = seed;
+        world = newWorld();
+    }
+
+    @Override
+    public long run() {
+        if (world.ants.alive() == 0) world = newWorld();
+        world.update();
+        return world.ants.size();
+    }
+
+    private World newWorld() {
+        return new World(16, 16, startingAnts, 10, 6, 5, seed);
+    }
+}
@@ -0,0 +1,42 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One World.update tick at colony sizes from 10 to 1,000,000 starting ants
+ * Each iteration starts the colony from the seed and then times tick after tick of it as it evolves, the way a
+ * running game steps it; every iteration therefore follows the same colony
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ColonyBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int startingAnts;
+
+    @Param("42")
+    public long seed;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void load() {
+        workload = Workload.load("ColonyWorkload");
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        workload.setup(startingAnts, seed);
+    }
+
+    @Benchmark
+    public long update() {
+        return workload.run();
+    }
+}
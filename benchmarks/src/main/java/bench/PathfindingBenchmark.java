@@ -0,0 +1,37 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A* queries on seeded random terrain, from the 16x16 editor grid up to 4096x4096
+ * Run with -prof gc for allocation rates; SampleTime mode reports the latency percentiles
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PathfindingBenchmark {
+
+    @Param({"16", "64", "256", "1024", "4096"})
+    public int gridSize;
+
+    @Param("42")
+    public long seed;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workload = Workload.load("AStarWorkload");
+        workload.setup(gridSize, seed);
+    }
+
+    @Benchmark
+    public long findPath() {
+        return workload.run();
+    }
+}
@@ -0,0 +1,24 @@
+package bench;
+
+/**
+ * One benchmarked operation from the game code
+ * The games live in the default package, which a named package (and so a JMH benchmark) cannot import.
+ * Each workload is therefore written in the default package against this interface and loaded by name
+ * once during setup; the measured calls are plain interface calls.
+ */
+public interface Workload {
+
+    // Builds the state for one trial: size is the grid side or colony size, depending on the workload
+    void setup(int size, long seed);
+
+    // One measured operation; returns something derived from the work so the JIT can't drop it
+    long run();
+
+    static Workload load(String className) {
+        try {
+            return (Workload) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load workload " + className, e);
+        }
+    }
+}